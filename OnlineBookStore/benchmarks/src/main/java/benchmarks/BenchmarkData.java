@@ -0,0 +1,137 @@
+// BenchmarkData.java
+package benchmarks;
+
+import models.Book;
+import models.CartItem;
+import models.Order;
+import models.Payment;
+import models.User;
+import utils.FileHandler;
+import utils.PasswordHasher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Writes a synthetic data directory of the requested scale and points the services at it.
+// Rows are rendered through the model toString methods, so they always match the live file formats.
+public class BenchmarkData {
+    static final String PASSWORD = "Benchmark1@";
+    private static final String[] GENRES = {
+            "Fiction", "Fantasy", "Romance", "Mystery", "Thriller", "History", "Science", "Poetry",
+            "Biography", "Travel", "Horror", "Children", "Drama", "Philosophy", "Art", "Cooking"
+    };
+    private static final String[] WORDS = {
+            "shadow", "river", "crown", "winter", "garden", "secret", "empire", "silent", "golden", "storm",
+            "glass", "forest", "memory", "stone", "ocean", "night", "fire", "letters", "island", "house"
+    };
+
+    private final int rows;
+    private final Path directory;
+
+    private BenchmarkData(int rows, Path directory) {
+        this.rows = rows;
+        this.directory = directory;
+    }
+
+    public static BenchmarkData generate(int rows) throws IOException {
+        Path directory = Files.createTempDirectory("bookstore-bench-");
+        BenchmarkData data = new BenchmarkData(rows, directory);
+        data.writeAll();
+        System.setProperty("bookstore.data.dir", directory.toString());
+        return data;
+    }
+
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    // Precomputed so benchmark bodies measure the service call rather than String.format
+    public String[] ids(IntFunction<String> id) {
+        String[] ids = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            ids[i] = id.apply(i);
+        }
+        return ids;
+    }
+
+    public static String bookId(int i) {
+        return String.format("B%07d", i);
+    }
+
+    public static String userId(int i) {
+        return String.format("U%07d", i);
+    }
+
+    public static String username(int i) {
+        return "user" + i;
+    }
+
+    public static String orderId(int i) {
+        return String.format("ORD-%07d", i);
+    }
+
+    public static String randomWord(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private void writeAll() throws IOException {
+        Random random = new Random(42);
+        int authors = Math.max(1, rows / 20);
+        long now = System.currentTimeMillis();
+
+        List<String> books = new ArrayList<>(rows);
+        List<String> users = new ArrayList<>(rows);
+        List<String> orders = new ArrayList<>(rows);
+        List<String> payments = new ArrayList<>(rows);
+        // One hash shared by every user keeps generation fast at any scale
+        String passwordHash = new PasswordHasher().hash(PASSWORD);
+
+        for (int i = 0; i < rows; i++) {
+            String title = capitalize(randomWord(random)) + " of the " + capitalize(randomWord(random)) + " " + i;
+            long price = 500 + random.nextInt(4500);
+            books.add(new Book(bookId(i), title, "Author " + random.nextInt(authors),
+                    GENRES[random.nextInt(GENRES.length)], price, 1_000_000_000).toString());
+
+            users.add(new User(userId(i), username(i), passwordHash, username(i) + "@example.com",
+                    i + " Benchmark St", false).toString());
+
+            List<CartItem> items = new ArrayList<>();
+            long total = 0;
+            for (int line = 0, lines = 1 + random.nextInt(3); line < lines; line++) {
+                CartItem item = new CartItem(bookId(random.nextInt(rows)), 1 + random.nextInt(3), 1000);
+                items.add(item);
+                total += item.getTotalPrice();
+            }
+            Date orderDate = new Date(now - (rows - i) * 1000L);
+            orders.add(new Order(orderId(i), userId(random.nextInt(rows)), items, total, orderDate, "PROCESSING").toString());
+            payments.add(new Payment(String.format("PAY-%07d", i), orderId(i), total, orderDate, "CREDIT_CARD",
+                    "COMPLETED").toString());
+        }
+
+        FileHandler.writeFile(file("books.csv"), books);
+        FileHandler.writeFile(file("users.csv"), users);
+        FileHandler.writeFile(file("orders.csv"), orders);
+        FileHandler.writeFile(file("payments.csv"), payments);
+    }
+
+    private String file(String name) {
+        return directory.resolve(name).toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
\ No newline at end of file
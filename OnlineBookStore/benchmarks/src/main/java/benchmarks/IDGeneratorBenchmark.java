@@ -0,0 +1,45 @@
+// IDGeneratorBenchmark.java
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.IDGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Time-ordered ids against the previous truncated random UUID, alone and with 8 threads contending
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IDGeneratorBenchmark {
+    @Benchmark
+    public String generateID() {
+        return IDGenerator.generateID();
+    }
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String generateIDContended() {
+        return IDGenerator.generateID();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String randomUuidContended() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,153 @@
+// InventoryBenchmark.java
+package benchmarks;
+
+import exceptions.BookNotFoundException;
+import exceptions.InsufficientStockException;
+import models.Book;
+import models.BookPage;
+import models.ImportReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import services.BookSort;
+import services.InventoryService;
+import utils.FileHandler;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryBenchmark {
+    @Param({"10000"})
+    private int rows;
+
+    private BenchmarkData data;
+    private InventoryService inventoryService;
+    private String[] bookIds;
+    private String middleCursor;
+
+    @Setup
+    public void setup() throws IOException {
+        data = BenchmarkData.generate(rows);
+        bookIds = data.ids(BenchmarkData::bookId);
+        inventoryService = new InventoryService();
+
+        // A cursor halfway through the price-sorted catalog, to show deep pages cost the same as the first
+        BookPage page = inventoryService.browseBooks(BookSort.PRICE, false, null, 200);
+        for (int seen = page.getBooks().size(); seen < rows / 2 && page.hasMore(); seen += page.getBooks().size()) {
+            page = inventoryService.browseBooks(BookSort.PRICE, false, page.getNextCursor(), 200);
+        }
+        middleCursor = page.getNextCursor();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        inventoryService.stop();
+        data.delete();
+    }
+
+    @Benchmark
+    public Book getBookById() throws BookNotFoundException {
+        return inventoryService.getBookById(bookIds[ThreadLocalRandom.current().nextInt(rows)]);
+    }
+
+    @Benchmark
+    public List<Book> searchBooks() {
+        return inventoryService.searchBooks(BenchmarkData.randomWord(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public List<Book> searchBooksPrefix() {
+        return inventoryService.searchBooks(BenchmarkData.randomWord(ThreadLocalRandom.current()).substring(0, 3));
+    }
+
+    // Browse traffic: the first page of the catalog, read by many threads at once
+    @Benchmark
+    @Threads(8)
+    public int browseFirstPage() {
+        List<Book> books = inventoryService.getAllBooks();
+        int stock = 0;
+        for (int i = 0; i < Math.min(20, books.size()); i++) {
+            stock += books.get(i).getStockQuantity();
+        }
+        return stock;
+    }
+
+    @Benchmark
+    public BookPage browseByPriceFirstPage() {
+        return inventoryService.browseBooks(BookSort.PRICE, false, null, 20);
+    }
+
+    @Benchmark
+    public BookPage browseByPriceMiddlePage() {
+        return inventoryService.browseBooks(BookSort.PRICE, false, middleCursor, 20);
+    }
+
+    @Benchmark
+    public List<Book> getBooksByGenre() {
+        return inventoryService.getBooksByGenre("Fantasy");
+    }
+
+    @Benchmark
+    public void updateStock() throws BookNotFoundException, InsufficientStockException {
+        inventoryService.updateStock(bookIds[ThreadLocalRandom.current().nextInt(rows)], -1);
+    }
+
+    // Each loaded service starts its own journal writer thread, stopped again after every invocation
+    @State(Scope.Thread)
+    public static class Loaded {
+        private InventoryService inventory;
+
+        @TearDown(Level.Invocation)
+        public void stop() {
+            if (inventory != null) {
+                inventory.stop();
+                inventory = null;
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public InventoryService loadBooks(Loaded loaded) {
+        loaded.inventory = new InventoryService();
+        return loaded.inventory;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public void saveBooks() {
+        inventoryService.compact();
+    }
+
+    // Re-imports the catalog's own books.csv, so every row is an update and the catalog stays the same size
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public ImportReport importBooks() throws IOException {
+        return inventoryService.importBooks(FileHandler.dataFile("books.csv"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,181 @@
+// OrderBenchmark.java
+package benchmarks;
+
+import exceptions.BookNotFoundException;
+import exceptions.DuplicatePaymentException;
+import exceptions.InsufficientStockException;
+import exceptions.UserNotFoundException;
+import models.CartItem;
+import models.Order;
+import models.Payment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import services.InventoryService;
+import services.OrderService;
+import services.PaymentService;
+import services.SimulatedPaymentGateway;
+import services.UserService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Covers OrderService and PaymentService, which share the inventory and user fixtures
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBenchmark {
+    @Param({"10000"})
+    private int rows;
+
+    private BenchmarkData data;
+    private InventoryService inventoryService;
+    private UserService userService;
+    private OrderService orderService;
+    private PaymentService paymentService;
+    private SimulatedPaymentGateway gateway;
+    private String[] bookIds;
+    private String[] userIds;
+    private String[] orderIds;
+
+    @Setup
+    public void setup() throws IOException {
+        data = BenchmarkData.generate(rows);
+        bookIds = data.ids(BenchmarkData::bookId);
+        userIds = data.ids(BenchmarkData::userId);
+        orderIds = data.ids(BenchmarkData::orderId);
+        inventoryService = new InventoryService();
+        userService = new UserService();
+        orderService = new OrderService(inventoryService, userService);
+        // An instant gateway, so the benchmark measures the pipeline rather than simulated network time
+        gateway = new SimulatedPaymentGateway(0, 0, 0);
+        paymentService = new PaymentService(orderService, gateway);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        paymentService.stop();
+        gateway.stop();
+        orderService.stop();
+        inventoryService.stop();
+        data.delete();
+    }
+
+    @Benchmark
+    public Order createOrder() throws UserNotFoundException, BookNotFoundException, InsufficientStockException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<CartItem> items = new ArrayList<>();
+        items.add(new CartItem(bookIds[random.nextInt(rows)], 1, 1000));
+        return orderService.createOrder(userIds[random.nextInt(rows)], items);
+    }
+
+    @Benchmark
+    public List<Order> getUserOrders() {
+        return orderService.getUserOrders(userIds[ThreadLocalRandom.current().nextInt(rows)], 0, 20);
+    }
+
+    // Every generated order is already paid, so each payment needs an order of its own
+    @State(Scope.Thread)
+    public static class UnpaidOrder {
+        private Order order;
+
+        @Setup(Level.Invocation)
+        public void create(OrderBenchmark benchmark)
+                throws UserNotFoundException, BookNotFoundException, InsufficientStockException {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<CartItem> items = new ArrayList<>();
+            items.add(new CartItem(benchmark.bookIds[random.nextInt(benchmark.rows)], 1, 1000));
+            order = benchmark.orderService.createOrder(benchmark.userIds[random.nextInt(benchmark.rows)], items);
+        }
+    }
+
+    @Benchmark
+    public Payment processPayment(UnpaidOrder unpaid) throws DuplicatePaymentException {
+        return paymentService.processPayment(unpaid.order.getId(), 1000, "CREDIT_CARD");
+    }
+
+    // A second payment for an order that is already paid, turned away before anything is stored
+    @Benchmark
+    public String rejectDuplicatePayment() {
+        try {
+            return paymentService.submitPayment(orderIds[ThreadLocalRandom.current().nextInt(rows)], 1000, "CREDIT_CARD").getId();
+        } catch (DuplicatePaymentException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public List<Payment> getPaymentsByOrder() {
+        return paymentService.getPaymentsByOrder(orderIds[ThreadLocalRandom.current().nextInt(rows)]);
+    }
+
+    // Each loaded service starts its own writer thread, stopped again after every invocation
+    @State(Scope.Thread)
+    public static class Loaded {
+        private OrderService orders;
+        private PaymentService payments;
+
+        @TearDown(Level.Invocation)
+        public void stop() {
+            if (orders != null) {
+                orders.stop();
+                orders = null;
+            }
+            if (payments != null) {
+                payments.stop();
+                payments = null;
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public OrderService loadOrders(Loaded loaded) {
+        loaded.orders = new OrderService(inventoryService, userService);
+        return loaded.orders;
+    }
+
+    // Parsing payments.csv only; attaching an order service would also resubmit PENDING payments
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public PaymentService loadPayments(Loaded loaded) {
+        loaded.payments = new PaymentService(gateway);
+        return loaded.payments;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public void saveOrders() {
+        orderService.compact();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public void savePayments() {
+        paymentService.compact();
+    }
+}
\ No newline at end of file
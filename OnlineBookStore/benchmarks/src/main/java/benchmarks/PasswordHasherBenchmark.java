@@ -0,0 +1,48 @@
+// PasswordHasherBenchmark.java
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.PasswordHasher;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of one login / registration at each candidate work factor, for picking bookstore.pbkdf2.iterations
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHasherBenchmark {
+    @Param({"10000", "100000", "210000", "600000"})
+    private int iterations;
+
+    private PasswordHasher hasher;
+    private String stored;
+
+    @Setup
+    public void setup() {
+        hasher = new PasswordHasher(iterations);
+        stored = hasher.hash(BenchmarkData.PASSWORD);
+    }
+
+    @Benchmark
+    public String hash() {
+        return hasher.hash(BenchmarkData.PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.verify(BenchmarkData.PASSWORD, stored);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+// UserBenchmark.java
+package benchmarks;
+
+import exceptions.UserNotFoundException;
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import services.UserService;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserBenchmark {
+    @Param({"10000"})
+    private int rows;
+
+    private BenchmarkData data;
+    private UserService userService;
+    private String[] userIds;
+    private String[] usernames;
+
+    @Setup
+    public void setup() throws IOException {
+        data = BenchmarkData.generate(rows);
+        userIds = data.ids(BenchmarkData::userId);
+        usernames = data.ids(BenchmarkData::username);
+        userService = new UserService();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        data.delete();
+    }
+
+    @Benchmark
+    public User authenticate() throws UserNotFoundException {
+        return userService.authenticate(usernames[ThreadLocalRandom.current().nextInt(rows)], BenchmarkData.PASSWORD);
+    }
+
+    @Benchmark
+    public User getUserById() throws UserNotFoundException {
+        return userService.getUserById(userIds[ThreadLocalRandom.current().nextInt(rows)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public UserService loadUsers() {
+        return new UserService();
+    }
+}
\ No newline at end of file
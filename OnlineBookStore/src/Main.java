@@ -1,30 +1,62 @@
 // Main.java
+import api.ApiServer;
 import models.*;
 import services.*;
 import exceptions.*;
 import utils.*;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 public class Main {
+    private static final int ORDERS_PAGE_SIZE = 10;
+    private static final int BOOKS_PAGE_SIZE = 20;
+    private static final long PAYMENT_WAIT_SECONDS = 5;
     private static Scanner scanner = new Scanner(System.in);
     private static InventoryService inventoryService;
     private static UserService userService;
     private static OrderService orderService;
     private static PaymentService paymentService;
-    private static User currentUser;
-
-    public static void main(String[] args) {
-        initializeServices();
+    private static SessionService sessionService;
+    private static CartService cartService;
+    private static SalesAnalytics salesAnalytics;
+    private static String sessionToken;
+    private static String currentUserId;
+
+    // Console front end by default; "--http [port]" serves the JSON API instead
+    public static void main(String[] args) throws Exception {
+        ServiceBootstrap bootstrap = initializeServices();
+
+        if (args.length > 0 && args[0].equals("--http")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : ApiServer.DEFAULT_PORT;
+            ApiServer server = new ApiServer(bootstrap);
+            server.start(port);
+            System.out.println("HTTP API listening on port " + server.getPort());
+            return;
+        }
         showWelcomeScreen();
     }
 
-    private static void initializeServices() {
-        inventoryService = new InventoryService();
-        userService = new UserService();
-        orderService = new OrderService(inventoryService, userService);
-        paymentService = new PaymentService(orderService);
+    private static ServiceBootstrap initializeServices() {
+        ServiceBootstrap bootstrap = new ServiceBootstrap();
+        bootstrap.start();
+
+        inventoryService = bootstrap.getInventoryService();
+        userService = bootstrap.getUserService();
+        orderService = bootstrap.getOrderService();
+        paymentService = bootstrap.getPaymentService();
+        sessionService = bootstrap.getSessionService();
+        cartService = bootstrap.getCartService();
+        salesAnalytics = bootstrap.getSalesAnalytics();
+
+        bootstrap.getLoadTimesMillis().forEach((store, millis) ->
+                System.out.println("Loaded " + store + " in " + millis + " ms"));
+        return bootstrap;
     }
 
     private static void showWelcomeScreen() {
@@ -64,10 +96,12 @@ public class Main {
         String password = scanner.nextLine();
 
         try {
-            currentUser = userService.authenticate(username, password);
-            System.out.println("Login successful! Welcome, " + currentUser.getUsername());
+            Session session = sessionService.login(username, password);
+            sessionToken = session.getToken();
+            currentUserId = session.getUserId();
+            System.out.println("Login successful! Welcome, " + session.getUser().getUsername());
 
-            if (currentUser.isAdmin()) {
+            if (session.getUser().isAdmin()) {
                 showAdminMenu();
             } else {
                 showCustomerMenu();
@@ -97,17 +131,14 @@ public class Main {
     }
 
     private static void browseBooks() {
-        List<Book> books = inventoryService.getAllBooks();
-        displayBooks(books);
+        browseCatalog();
 
         System.out.println("\nPress Enter to continue...");
         scanner.nextLine();
     }
 
     private static void showCustomerMenu() {
-        List<CartItem> cart = new ArrayList<>();
-
-        while (true) {
+        while (hasActiveSession()) {
             System.out.println("\n=== Customer Menu ===");
             System.out.println("1. Browse Books");
             System.out.println("2. Search Books");
@@ -121,23 +152,23 @@ public class Main {
 
             switch (choice) {
                 case 1:
-                    browseBooksAndAddToCart(cart);
+                    browseBooksAndAddToCart();
                     break;
                 case 2:
-                    searchBooksAndAddToCart(cart);
+                    searchBooksAndAddToCart();
                     break;
                 case 3:
-                    viewCart(cart);
+                    viewCart();
                     break;
                 case 4:
-                    checkout(cart);
+                    checkout();
                     break;
                 case 5:
                     viewOrders();
                     break;
                 case 6:
-                    currentUser = null;
-                    cart.clear();
+                    cartService.clear(currentUserId);
+                    logout();
                     System.out.println("Logged out successfully.");
                     return;
                 default:
@@ -146,42 +177,36 @@ public class Main {
         }
     }
 
-    private static void browseBooksAndAddToCart(List<CartItem> cart) {
-        List<Book> books = inventoryService.getAllBooks();
-        displayBooks(books);
+    private static void browseBooksAndAddToCart() {
+        browseCatalog();
 
         System.out.print("Enter book ID to add to cart (or 0 to go back): ");
         String bookId = scanner.nextLine();
 
         if (!bookId.equals("0")) {
-            try {
-                Book book = inventoryService.getBookById(bookId);
-                System.out.print("Enter quantity: ");
-                int quantity = getIntInput();
-
-                if (quantity > 0 && quantity <= book.getStockQuantity()) {
-                    // Check if book already in cart
-                    Optional<CartItem> existingItem = cart.stream()
-                            .filter(item -> item.getBookId().equals(bookId))
-                            .findFirst();
-
-                    if (existingItem.isPresent()) {
-                        existingItem.get().setQuantity(existingItem.get().getQuantity() + quantity);
-                    } else {
-                        cart.add(new CartItem(bookId, quantity, book.getPrice()));
-                    }
+            addToCart(bookId);
+        }
+    }
 
-                    System.out.println("Added to cart: " + book.getTitle());
-                } else {
-                    System.out.println("Invalid quantity or insufficient stock.");
-                }
-            } catch (BookNotFoundException e) {
-                System.out.println("Error: " + e.getMessage());
+    // Pages through the whole catalog in the chosen order, one sorted page at a time
+    private static void browseCatalog() {
+        System.out.print("Sort by (1. Title, 2. Author, 3. Price, 4. Stock): ");
+        int choice = getIntInput();
+        BookSort sort = choice >= 1 && choice <= 4 ? BookSort.values()[choice - 1] : BookSort.TITLE;
+
+        BookPage page = inventoryService.browseBooks(sort, false, null, BOOKS_PAGE_SIZE);
+        displayBooks(page.getBooks());
+        while (page.hasMore()) {
+            System.out.print("\nShow more books? (y/n): ");
+            if (!scanner.nextLine().equalsIgnoreCase("y")) {
+                return;
             }
+            page = inventoryService.browseBooks(sort, false, page.getNextCursor(), BOOKS_PAGE_SIZE);
+            displayBooks(page.getBooks());
         }
     }
 
-    private static void searchBooksAndAddToCart(List<CartItem> cart) {
+    private static void searchBooksAndAddToCart() {
         System.out.print("Enter search query: ");
         String query = scanner.nextLine();
 
@@ -193,58 +218,31 @@ public class Main {
             String bookId = scanner.nextLine();
 
             if (!bookId.equals("0")) {
-                try {
-                    Book book = inventoryService.getBookById(bookId);
-                    System.out.print("Enter quantity: ");
-                    int quantity = getIntInput();
-
-                    if (quantity > 0 && quantity <= book.getStockQuantity()) {
-                        // Check if book already in cart
-                        Optional<CartItem> existingItem = cart.stream()
-                                .filter(item -> item.getBookId().equals(bookId))
-                                .findFirst();
-
-                        if (existingItem.isPresent()) {
-                            existingItem.get().setQuantity(existingItem.get().getQuantity() + quantity);
-                        } else {
-                            cart.add(new CartItem(bookId, quantity, book.getPrice()));
-                        }
-
-                        System.out.println("Added to cart: " + book.getTitle());
-                    } else {
-                        System.out.println("Invalid quantity or insufficient stock.");
-                    }
-                } catch (BookNotFoundException e) {
-                    System.out.println("Error: " + e.getMessage());
-                }
+                addToCart(bookId);
             }
         }
     }
 
-    private static void viewCart(List<CartItem> cart) {
-        if (cart.isEmpty()) {
-            System.out.println("Your cart is empty.");
-            return;
-        }
-
-        System.out.println("\n=== Your Cart ===");
-        double total = 0;
-
-        for (CartItem item : cart) {
-            try {
-                Book book = inventoryService.getBookById(item.getBookId());
-                double itemTotal = item.getTotalPrice();
-                total += itemTotal;
+    private static void addToCart(String bookId) {
+        try {
+            Book book = inventoryService.getBookById(bookId);
+            System.out.print("Enter quantity: ");
+            int quantity = getIntInput();
 
-                System.out.printf("%s by %s - $%.2f x %d = $%.2f%n",
-                        book.getTitle(), book.getAuthor(),
-                        book.getPrice(), item.getQuantity(), itemTotal);
-            } catch (BookNotFoundException e) {
-                System.out.println("Error: Book not found for cart item");
-            }
+            cartService.addItem(currentUserId, bookId, quantity);
+            System.out.println("Added to cart: " + book.getTitle());
+        } catch (BookNotFoundException | InsufficientStockException e) {
+            System.out.println("Error: " + e.getMessage());
         }
+    }
 
-        System.out.printf("Total: $%.2f%n", total);
+    private static void viewCart() {
+        List<CartItem> items = cartService.getItems(currentUserId);
+        if (items.isEmpty()) {
+            System.out.println("Your cart is empty.");
+            return;
+        }
+        printCart(items);
 
         System.out.println("\n1. Update quantities");
         System.out.println("2. Remove items");
@@ -255,10 +253,10 @@ public class Main {
 
         switch (choice) {
             case 1:
-                updateCartQuantities(cart);
+                updateCartQuantities();
                 break;
             case 2:
-                removeFromCart(cart);
+                removeFromCart();
                 break;
             case 3:
                 // Just go back
@@ -268,39 +266,50 @@ public class Main {
         }
     }
 
-    private static void updateCartQuantities(List<CartItem> cart) {
-        System.out.print("Enter book ID to update: ");
-        String bookId = scanner.nextLine();
-
-        Optional<CartItem> item = cart.stream()
-                .filter(i -> i.getBookId().equals(bookId))
-                .findFirst();
+    // Prices come from the snapshots taken when each book was added
+    private static void printCart(List<CartItem> items) {
+        System.out.println("\n=== Your Cart ===");
+        long total = 0;
 
-        if (item.isPresent()) {
+        for (CartItem item : items) {
+            long itemTotal = item.getTotalPrice();
+            total += itemTotal;
             try {
-                Book book = inventoryService.getBookById(bookId);
-                System.out.print("Enter new quantity: ");
-                int newQuantity = getIntInput();
-
-                if (newQuantity > 0 && newQuantity <= book.getStockQuantity() + item.get().getQuantity()) {
-                    item.get().setQuantity(newQuantity);
-                    System.out.println("Quantity updated.");
-                } else {
-                    System.out.println("Invalid quantity or insufficient stock.");
-                }
+                Book book = inventoryService.getBookById(item.getBookId());
+                System.out.printf("%s by %s - $%s x %d = $%s%n",
+                        book.getTitle(), book.getAuthor(),
+                        Money.format(item.getPrice()), item.getQuantity(), Money.format(itemTotal));
             } catch (BookNotFoundException e) {
-                System.out.println("Error: " + e.getMessage());
+                System.out.printf("[Book %s no longer available] - $%s x %d = $%s%n",
+                        item.getBookId(), Money.format(item.getPrice()), item.getQuantity(), Money.format(itemTotal));
             }
-        } else {
-            System.out.println("Book not found in cart.");
         }
+
+        System.out.println("Total: $" + Money.format(total));
     }
 
-    private static void removeFromCart(List<CartItem> cart) {
+    private static void updateCartQuantities() {
+        System.out.print("Enter book ID to update: ");
+        String bookId = scanner.nextLine();
+        System.out.print("Enter new quantity: ");
+        int newQuantity = getIntInput();
+
+        try {
+            if (cartService.updateQuantity(currentUserId, bookId, newQuantity)) {
+                System.out.println("Quantity updated.");
+            } else {
+                System.out.println("Book not found in cart.");
+            }
+        } catch (BookNotFoundException | InsufficientStockException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private static void removeFromCart() {
         System.out.print("Enter book ID to remove: ");
         String bookId = scanner.nextLine();
 
-        boolean removed = cart.removeIf(item -> item.getBookId().equals(bookId));
+        boolean removed = cartService.removeItem(currentUserId, bookId);
 
         if (removed) {
             System.out.println("Item removed from cart.");
@@ -309,25 +318,25 @@ public class Main {
         }
     }
 
-    private static void checkout(List<CartItem> cart) {
+    private static void checkout() {
+        // Display cart summary
+        List<CartItem> cart = cartService.getItems(currentUserId);
         if (cart.isEmpty()) {
             System.out.println("Your cart is empty. Nothing to checkout.");
             return;
         }
-
-        // Display cart summary
-        viewCart(cart);
+        printCart(cart);
 
         System.out.print("Proceed to checkout? (y/n): ");
         String confirm = scanner.nextLine();
 
         if (confirm.equalsIgnoreCase("y")) {
             try {
-                Order order = orderService.createOrder(currentUser.getId(), cart);
+                Order order = orderService.createOrder(currentSession(), cart);
 
                 System.out.println("\nOrder created successfully!");
                 System.out.println("Order ID: " + order.getId());
-                System.out.printf("Total: $%.2f%n", order.getTotalAmount());
+                System.out.println("Total: $" + Money.format(order.getTotalAmount()));
 
                 // Process payment
                 System.out.println("\n=== Payment ===");
@@ -345,59 +354,95 @@ public class Main {
                     case 3: paymentMethod = "PAYPAL"; break;
                 }
 
-                Payment payment = paymentService.processPayment(
+                Payment payment = paymentService.submitPayment(
                         order.getId(), order.getTotalAmount(), paymentMethod);
-
-                System.out.println("Payment processed successfully!");
                 System.out.println("Payment ID: " + payment.getId());
 
+                // The gateway usually answers well within this; otherwise the result shows up under View Orders
+                try {
+                    paymentService.awaitSettlement(payment).get(PAYMENT_WAIT_SECONDS, TimeUnit.SECONDS);
+                } catch (TimeoutException | ExecutionException e) {
+                    // Still pending
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (payment.getStatus().equals("COMPLETED")) {
+                    System.out.println("Payment processed successfully!");
+                } else if (payment.getStatus().equals("FAILED")) {
+                    System.out.println("Payment failed; the order has been cancelled.");
+                } else {
+                    System.out.println("Payment is still being processed. Check View Orders for its status.");
+                }
+
                 // Clear cart
-                cart.clear();
+                cartService.removeItems(currentUserId, cart);
 
-            } catch (UserNotFoundException | BookNotFoundException | InsufficientStockException e) {
+            } catch (SessionExpiredException | BookNotFoundException | InsufficientStockException
+                     | DuplicatePaymentException e) {
                 System.out.println("Error during checkout: " + e.getMessage());
             }
         }
     }
 
     private static void viewOrders() {
-        List<Order> orders = orderService.getUserOrders(currentUser.getId());
+        Session session;
+        try {
+            session = currentSession();
+        } catch (SessionExpiredException e) {
+            System.out.println("Error: " + e.getMessage());
+            return;
+        }
+        int totalOrders = orderService.getUserOrderCount(session);
 
-        if (orders.isEmpty()) {
+        if (totalOrders == 0) {
             System.out.println("You have no orders yet.");
             return;
         }
 
         System.out.println("\n=== Your Orders ===");
+        for (int offset = 0; offset < totalOrders; offset += ORDERS_PAGE_SIZE) {
+            if (offset > 0) {
+                System.out.print("\nShow more orders? (y/n): ");
+                if (!scanner.nextLine().equalsIgnoreCase("y")) {
+                    return;
+                }
+            }
+            displayOrders(orderService.getUserOrders(session, offset, ORDERS_PAGE_SIZE));
+        }
+
+        System.out.println("\nPress Enter to continue...");
+        scanner.nextLine();
+    }
+
+    private static void displayOrders(List<Order> orders) {
         for (Order order : orders) {
             System.out.println("\nOrder ID: " + order.getId());
             System.out.println("Date: " + order.getOrderDate());
             System.out.println("Status: " + order.getStatus());
-            System.out.printf("Total: $%.2f%n", order.getTotalAmount());
+            System.out.println("Total: $" + Money.format(order.getTotalAmount()));
 
             System.out.println("Items:");
             for (CartItem item : order.getItems()) {
                 try {
                     Book book = inventoryService.getBookById(item.getBookId());
-                    System.out.printf("  %s by %s - $%.2f x %d%n",
-                            book.getTitle(), book.getAuthor(), item.getPrice(), item.getQuantity());
+                    System.out.printf("  %s by %s - $%s x %d%n",
+                            book.getTitle(), book.getAuthor(), Money.format(item.getPrice()), item.getQuantity());
                 } catch (BookNotFoundException e) {
                     System.out.println("  [Book details unavailable]");
                 }
             }
         }
-
-        System.out.println("\nPress Enter to continue...");
-        scanner.nextLine();
     }
 
     private static void showAdminMenu() {
-        while (true) {
+        while (hasActiveSession()) {
             System.out.println("\n=== Admin Menu ===");
             System.out.println("1. Manage Books");
             System.out.println("2. View All Orders");
             System.out.println("3. View All Payments");
-            System.out.println("4. Logout");
+            System.out.println("4. Sales Dashboard");
+            System.out.println("5. View Metrics");
+            System.out.println("6. Logout");
             System.out.print("Please choose an option: ");
 
             int choice = getIntInput();
@@ -413,7 +458,14 @@ public class Main {
                     viewAllPayments();
                     break;
                 case 4:
-                    currentUser = null;
+                    viewSalesDashboard();
+                    break;
+                case 5:
+                    System.out.println("\n=== Metrics ===");
+                    System.out.print(Metrics.dump());
+                    break;
+                case 6:
+                    logout();
                     System.out.println("Logged out successfully.");
                     return;
                 default:
@@ -429,7 +481,8 @@ public class Main {
             System.out.println("2. Add New Book");
             System.out.println("3. Update Book");
             System.out.println("4. Delete Book");
-            System.out.println("5. Back to Admin Menu");
+            System.out.println("5. Import Books from CSV");
+            System.out.println("6. Back to Admin Menu");
             System.out.print("Please choose an option: ");
 
             int choice = getIntInput();
@@ -448,6 +501,9 @@ public class Main {
                     deleteBook();
                     break;
                 case 5:
+                    importBooks();
+                    break;
+                case 6:
                     return;
                 default:
                     System.out.println("Invalid option. Please try again.");
@@ -463,7 +519,7 @@ public class Main {
         System.out.print("Genre: ");
         String genre = scanner.nextLine();
         System.out.print("Price: ");
-        double price = getDoubleInput();
+        long price = getMoneyInput();
         System.out.print("Stock Quantity: ");
         int stock = getIntInput();
 
@@ -473,6 +529,24 @@ public class Main {
         System.out.println("Book added successfully!");
     }
 
+    private static void importBooks() {
+        System.out.print("CSV file (id,title,author,genre,price,stock; blank id adds a new book): ");
+        String filename = scanner.nextLine().trim();
+
+        try {
+            ImportReport report = inventoryService.importBooks(filename);
+            System.out.println("Imported " + report);
+            for (String rejection : report.getRejections()) {
+                System.out.println("  Rejected " + rejection);
+            }
+            if (report.getRejected() > report.getRejections().size()) {
+                System.out.println("  ... and " + (report.getRejected() - report.getRejections().size()) + " more");
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+        }
+    }
+
     private static void updateBook() {
         displayBooks(inventoryService.getAllBooks());
 
@@ -480,7 +554,10 @@ public class Main {
         String bookId = scanner.nextLine();
 
         try {
-            Book book = inventoryService.getBookById(bookId);
+            // Edit a copy; the catalog's own instance is shared with every reader
+            Book current = inventoryService.getBookById(bookId);
+            Book book = new Book(current.getId(), current.getTitle(), current.getAuthor(), current.getGenre(),
+                    current.getPrice(), current.getStockQuantity());
 
             System.out.print("Title (" + book.getTitle() + "): ");
             String title = scanner.nextLine();
@@ -494,9 +571,9 @@ public class Main {
             String genre = scanner.nextLine();
             if (!genre.isEmpty()) book.setGenre(genre);
 
-            System.out.print("Price (" + book.getPrice() + "): ");
+            System.out.print("Price (" + Money.format(book.getPrice()) + "): ");
             String priceStr = scanner.nextLine();
-            if (!priceStr.isEmpty()) book.setPrice(Double.parseDouble(priceStr));
+            if (!priceStr.isEmpty()) book.setPrice(Money.parse(priceStr));
 
             System.out.print("Stock Quantity (" + book.getStockQuantity() + "): ");
             String stockStr = scanner.nextLine();
@@ -524,6 +601,43 @@ public class Main {
         }
     }
 
+    // Reads the running aggregates only; nothing here walks the order history
+    private static void viewSalesDashboard() {
+        System.out.println("\n=== Sales Dashboard ===");
+        System.out.println("Orders: " + salesAnalytics.getOrderCount()
+                + "  Units sold: " + salesAnalytics.getUnitsSold()
+                + "  Revenue: $" + Money.format(salesAnalytics.getTotalRevenue()));
+
+        System.out.println("\nLast 7 days:");
+        LocalDate today = LocalDate.now();
+        for (SalesTotal day : salesAnalytics.getDailySales(today.minusDays(6), today)) {
+            System.out.printf("  %s  %4d orders  $%s%n", day.getKey(), day.getUnits(), Money.format(day.getRevenue()));
+        }
+
+        System.out.println("\nBestsellers:");
+        CatalogSnapshot catalog = inventoryService.getSnapshot();
+        int rank = 1;
+        for (SalesTotal sales : salesAnalytics.getBestsellers(10)) {
+            Book book = catalog.getBook(sales.getKey());
+            System.out.printf("  %2d. %-30s %5d sold  $%s%n", rank++,
+                    book == null ? sales.getKey() : truncate(book.getTitle(), 28),
+                    sales.getUnits(), Money.format(sales.getRevenue()));
+        }
+
+        System.out.println("\nBy genre:");
+        for (SalesTotal genre : salesAnalytics.getSalesByGenre()) {
+            System.out.printf("  %-15s %5d sold  $%s%n", truncate(genre.getKey(), 13), genre.getUnits(), Money.format(genre.getRevenue()));
+        }
+
+        System.out.println("\nBy payment method:");
+        for (SalesTotal method : salesAnalytics.getPaymentsByMethod()) {
+            System.out.printf("  %-15s %5d payments  $%s%n", method.getKey(), method.getUnits(), Money.format(method.getRevenue()));
+        }
+
+        System.out.println("\nPress Enter to continue...");
+        scanner.nextLine();
+    }
+
     private static void viewAllOrders() {
         List<Order> orders = orderService.getAllOrders();
 
@@ -543,14 +657,14 @@ public class Main {
             }
             System.out.println("Date: " + order.getOrderDate());
             System.out.println("Status: " + order.getStatus());
-            System.out.printf("Total: $%.2f%n", order.getTotalAmount());
+            System.out.println("Total: $" + Money.format(order.getTotalAmount()));
 
             System.out.println("Items:");
             for (CartItem item : order.getItems()) {
                 try {
                     Book book = inventoryService.getBookById(item.getBookId());
-                    System.out.printf("  %s by %s - $%.2f x %d%n",
-                            book.getTitle(), book.getAuthor(), item.getPrice(), item.getQuantity());
+                    System.out.printf("  %s by %s - $%s x %d%n",
+                            book.getTitle(), book.getAuthor(), Money.format(item.getPrice()), item.getQuantity());
                 } catch (BookNotFoundException e) {
                     System.out.println("  [Book details unavailable]");
                 }
@@ -605,7 +719,7 @@ public class Main {
         for (Payment payment : payments) {
             System.out.println("\nPayment ID: " + payment.getId());
             System.out.println("Order ID: " + payment.getOrderId());
-            System.out.printf("Amount: $%.2f%n", payment.getAmount());
+            System.out.println("Amount: $" + Money.format(payment.getAmount()));
             System.out.println("Date: " + payment.getPaymentDate());
             System.out.println("Method: " + payment.getPaymentMethod());
             System.out.println("Status: " + payment.getStatus());
@@ -622,17 +736,17 @@ public class Main {
         }
 
         System.out.println("\n=== Books ===");
-        System.out.printf("%-8s %-30s %-20s %-15s %-8s %-5s%n",
+        System.out.printf("%-14s %-30s %-20s %-15s %-8s %-5s%n",
                 "ID", "Title", "Author", "Genre", "Price", "Stock");
-        System.out.println("-----------------------------------------------------------------------------");
+        System.out.println("-----------------------------------------------------------------------------------");
 
         for (Book book : books) {
-            System.out.printf("%-8s %-30s %-20s %-15s $%-7.2f %-5d%n",
+            System.out.printf("%-14s %-30s %-20s %-15s $%-7s %-5d%n",
                     book.getId(),
                     truncate(book.getTitle(), 28),
                     truncate(book.getAuthor(), 18),
                     truncate(book.getGenre(), 13),
-                    book.getPrice(),
+                    Money.format(book.getPrice()),
                     book.getStockQuantity());
         }
     }
@@ -644,6 +758,27 @@ public class Main {
         return str.substring(0, length - 3) + "...";
     }
 
+    private static Session currentSession() throws SessionExpiredException {
+        return sessionService.validate(sessionToken);
+    }
+
+    private static boolean hasActiveSession() {
+        try {
+            currentSession();
+            return true;
+        } catch (SessionExpiredException e) {
+            System.out.println(e.getMessage());
+            sessionToken = null;
+            return false;
+        }
+    }
+
+    private static void logout() {
+        sessionService.logout(sessionToken);
+        sessionToken = null;
+        currentUserId = null;
+    }
+
     private static int getIntInput() {
         while (true) {
             try {
@@ -654,10 +789,10 @@ public class Main {
         }
     }
 
-    private static double getDoubleInput() {
+    private static long getMoneyInput() {
         while (true) {
             try {
-                return Double.parseDouble(scanner.nextLine());
+                return Money.parse(scanner.nextLine());
             } catch (NumberFormatException e) {
                 System.out.print("Invalid input. Please enter a number: ");
             }
@@ -0,0 +1,547 @@
+// ApiServer.java
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import models.Book;
+import models.BookPage;
+import models.CartItem;
+import models.Order;
+import models.Payment;
+import models.SalesTotal;
+import models.Session;
+import services.BookSort;
+import services.CartService;
+import services.InventoryService;
+import services.OrderService;
+import services.PaymentService;
+import services.SalesAnalytics;
+import services.ServiceBootstrap;
+import services.SessionService;
+import exceptions.BookNotFoundException;
+import exceptions.DuplicatePaymentException;
+import exceptions.InsufficientStockException;
+import exceptions.SessionExpiredException;
+import exceptions.UserNotFoundException;
+import utils.JsonWriter;
+import utils.LatencyStats;
+import utils.Metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// JSON over HTTP front end for the services. Parameters come from the query string or an
+// application/x-www-form-urlencoded body; endpoints other than login and the catalog expect
+// "Authorization: Bearer <token>" with the token returned by POST /api/login.
+//   POST   /api/login (username, password)      POST /api/logout
+//   GET    /api/books?sort=title|author|price|stock&order=asc|desc&cursor=&limit=
+//   GET    /api/books/{id}                      GET  /api/search?q=&limit=
+//   GET    /api/cart    POST|PUT /api/cart (bookId, quantity)    DELETE /api/cart?bookId=
+//   POST   /api/checkout (paymentMethod)        GET  /api/orders?offset=&limit=     GET /api/payments?orderId=
+//   GET    /api/metrics (admins only, plain text)   GET /api/analytics?days=&top= (admins only)
+public class ApiServer {
+    public static final int DEFAULT_PORT = Integer.getInteger("bookstore.http.port", 8080);
+    private static final int PLATFORM_THREADS = Integer.getInteger("bookstore.http.threads", 256);
+    private static final int BACKLOG = 1024;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final Set<String> PAYMENT_METHODS = Set.of("CREDIT_CARD", "DEBIT_CARD", "PAYPAL");
+    // How long a checkout without an Idempotency-Key blocks an identical one from the same session;
+    // long enough to catch a double click, short enough not to stop the same cart being bought again
+    private static final long CART_KEY_TTL_MILLIS =
+            TimeUnit.SECONDS.toMillis(Long.getLong("bookstore.checkout.dedupe.seconds", 10));
+
+    private final InventoryService inventoryService;
+    private final OrderService orderService;
+    private final PaymentService paymentService;
+    private final SessionService sessionService;
+    private final CartService cartService;
+    private final SalesAnalytics salesAnalytics;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public ApiServer(ServiceBootstrap services) {
+        this.inventoryService = services.getInventoryService();
+        this.orderService = services.getOrderService();
+        this.paymentService = services.getPaymentService();
+        this.sessionService = services.getSessionService();
+        this.cartService = services.getCartService();
+        this.salesAnalytics = services.getSalesAnalytics();
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        route("/api/login", this::login);
+        route("/api/logout", this::logout);
+        route("/api/books", this::books);
+        route("/api/search", this::search);
+        route("/api/cart", this::cart);
+        route("/api/checkout", this::checkout);
+        route("/api/orders", this::orders);
+        route("/api/payments", this::payments);
+        route("/api/metrics", this::metrics);
+        route("/api/analytics", this::analytics);
+
+        executor = newExecutor();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // One task per exchange: virtual threads when the runtime has them (JDK 21+), otherwise a
+    // fixed pool of platform threads sized by -Dbookstore.http.threads
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(PLATFORM_THREADS, runnable -> new Thread(runnable, "http-worker"));
+        }
+    }
+
+    private void login(Request request) throws Exception {
+        request.requireMethod("POST");
+        Session session = sessionService.login(request.required("username"), request.required("password"));
+        request.respond(200, json -> json.beginObject()
+                .name("token").value(session.getToken())
+                .name("userId").value(session.getUserId())
+                .name("username").value(session.getUser().getUsername())
+                .name("admin").value(session.getUser().isAdmin())
+                .endObject());
+    }
+
+    private void logout(Request request) throws Exception {
+        request.requireMethod("POST");
+        sessionService.logout(request.bearerToken());
+        request.respond(204, null);
+    }
+
+    private void books(Request request) throws Exception {
+        request.requireMethod("GET");
+        String id = request.pathTail("/api/books");
+        if (!id.isEmpty()) {
+            Book book = inventoryService.getBookById(id);
+            request.respond(200, json -> writeBook(json, book));
+            return;
+        }
+
+        // Cursor paging: pass nextCursor back with the same sort and order to continue
+        BookSort sort = BookSort.valueOf(request.param("sort", "title").toUpperCase(Locale.ROOT));
+        boolean descending = request.param("order", "asc").equalsIgnoreCase("desc");
+        int total = inventoryService.getSnapshot().size();
+        BookPage page = inventoryService.browseBooks(sort, descending, request.param("cursor", null), request.limit());
+        request.respond(200, json -> {
+            json.beginObject().name("total").value(total).name("books").beginArray();
+            for (Book book : page.getBooks()) {
+                writeBook(json, book);
+            }
+            json.endArray().name("nextCursor");
+            if (page.hasMore()) {
+                json.value(page.getNextCursor());
+            } else {
+                json.nullValue();
+            }
+            json.endObject();
+        });
+    }
+
+    private void search(Request request) throws Exception {
+        request.requireMethod("GET");
+        List<Book> results = inventoryService.searchBooks(request.param("q", ""), request.limit());
+        request.respond(200, json -> {
+            json.beginArray();
+            for (Book book : results) {
+                writeBook(json, book);
+            }
+            json.endArray();
+        });
+    }
+
+    private void cart(Request request) throws Exception {
+        String userId = session(request).getUserId();
+
+        switch (request.method) {
+            case "GET":
+                break;
+            case "POST":
+                cartService.addItem(userId, request.required("bookId"), Integer.parseInt(request.required("quantity")));
+                break;
+            case "PUT":
+                if (!cartService.updateQuantity(userId, request.required("bookId"),
+                        Integer.parseInt(request.required("quantity")))) {
+                    throw new HttpError(404, "Book not found in cart");
+                }
+                break;
+            case "DELETE":
+                cartService.removeItem(userId, request.required("bookId"));
+                break;
+            default:
+                throw new HttpError(405, "Method not allowed");
+        }
+
+        List<CartItem> items = cartService.getItems(userId);
+        request.respond(200, json -> {
+            long total = 0;
+            json.beginObject().name("items").beginArray();
+            for (CartItem item : items) {
+                writeItem(json, item);
+                total += item.getTotalPrice();
+            }
+            json.endArray().name("total").money(total).endObject();
+        });
+    }
+
+    private void checkout(Request request) throws Exception {
+        request.requireMethod("POST");
+        Session session = session(request);
+        String paymentMethod = request.required("paymentMethod");
+        if (!PAYMENT_METHODS.contains(paymentMethod)) {
+            throw new IllegalArgumentException("Unsupported payment method: " + paymentMethod);
+        }
+
+        List<CartItem> items = cartService.getItems(session.getUserId());
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("Your cart is empty. Nothing to checkout.");
+        }
+
+        // The key is claimed before the order exists, so a repeat (e.g. a double-clicked checkout)
+        // gets 409 without reserving stock or writing anything. Keys are scoped to the user; without
+        // an Idempotency-Key header, one is derived from the session and the cart's contents.
+        String header = request.exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        String key = session.getUserId() + ":" + (header != null ? header : cartKey(session, items));
+        if (header != null) {
+            paymentService.claimIdempotencyKey(key);
+        } else {
+            paymentService.claimIdempotencyKey(key, CART_KEY_TTL_MILLIS);
+        }
+
+        Order order;
+        try {
+            order = orderService.createOrder(session, items);
+        } catch (Exception e) {
+            paymentService.releaseIdempotencyKey(key);
+            throw e;
+        }
+        // Answered as soon as the payment is queued; poll /api/payments?orderId= for the outcome
+        Payment payment;
+        try {
+            payment = paymentService.submitPayment(order.getId(), order.getTotalAmount(), paymentMethod, key);
+        } catch (DuplicatePaymentException | IllegalArgumentException e) {
+            orderService.cancelOrder(order.getId());
+            throw e;
+        }
+        cartService.removeItems(session.getUserId(), items);
+
+        request.respond(202, json -> {
+            json.beginObject().name("order");
+            writeOrder(json, order);
+            json.name("payment");
+            writePayment(json, payment);
+            json.endObject();
+        });
+    }
+
+    private static String cartKey(Session session, List<CartItem> items) {
+        StringBuilder key = new StringBuilder("cart:").append(session.getToken());
+        for (CartItem item : items) {
+            key.append(':').append(item.getBookId()).append('x').append(item.getQuantity());
+        }
+        return key.toString();
+    }
+
+    private void orders(Request request) throws Exception {
+        request.requireMethod("GET");
+        Session session = session(request);
+        int total = orderService.getUserOrderCount(session);
+        List<Order> page = orderService.getUserOrders(session, request.offset(), request.limit());
+        request.respond(200, json -> {
+            json.beginObject().name("total").value(total).name("orders").beginArray();
+            for (Order order : page) {
+                writeOrder(json, order);
+            }
+            json.endArray().endObject();
+        });
+    }
+
+    private void payments(Request request) throws Exception {
+        request.requireMethod("GET");
+        Session session = session(request);
+        Order order = orderService.getOrderById(request.required("orderId"));
+        if (order == null || !order.getUserId().equals(session.getUserId())) {
+            throw new HttpError(404, "Order not found");
+        }
+        List<Payment> payments = paymentService.getPaymentsByOrder(order.getId());
+        request.respond(200, json -> {
+            json.beginObject().name("orderStatus").value(order.getStatus()).name("payments").beginArray();
+            for (Payment payment : payments) {
+                writePayment(json, payment);
+            }
+            json.endArray().endObject();
+        });
+    }
+
+    private void metrics(Request request) throws Exception {
+        request.requireMethod("GET");
+        requireAdmin(request);
+        byte[] body = Metrics.dump().getBytes(StandardCharsets.UTF_8);
+        request.exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        request.exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = request.exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void analytics(Request request) throws Exception {
+        request.requireMethod("GET");
+        requireAdmin(request);
+        int days = Math.max(1, Math.min(Integer.parseInt(request.param("days", "7")), 366));
+        int top = Math.max(1, Math.min(Integer.parseInt(request.param("top", "10")), MAX_PAGE_SIZE));
+        LocalDate today = LocalDate.now();
+        request.respond(200, json -> {
+            json.beginObject()
+                    .name("orders").value(salesAnalytics.getOrderCount())
+                    .name("units").value(salesAnalytics.getUnitsSold())
+                    .name("revenue").money(salesAnalytics.getTotalRevenue());
+            writeTotals(json, "daily", salesAnalytics.getDailySales(today.minusDays(days - 1), today));
+            writeTotals(json, "bestsellers", salesAnalytics.getBestsellers(top));
+            writeTotals(json, "genres", salesAnalytics.getSalesByGenre());
+            writeTotals(json, "paymentMethods", salesAnalytics.getPaymentsByMethod());
+            json.endObject();
+        });
+    }
+
+    private static void writeTotals(JsonWriter json, String name, List<SalesTotal> totals) throws IOException {
+        json.name(name).beginArray();
+        for (SalesTotal total : totals) {
+            json.beginObject()
+                    .name("key").value(total.getKey())
+                    .name("count").value(total.getUnits())
+                    .name("revenue").money(total.getRevenue())
+                    .endObject();
+        }
+        json.endArray();
+    }
+
+    private void requireAdmin(Request request) throws SessionExpiredException {
+        if (!session(request).getUser().isAdmin()) {
+            throw new HttpError(403, "Admin access required");
+        }
+    }
+
+    private Session session(Request request) throws SessionExpiredException {
+        return sessionService.validate(request.bearerToken());
+    }
+
+    private static void writeBook(JsonWriter json, Book book) throws IOException {
+        json.beginObject()
+                .name("id").value(book.getId())
+                .name("title").value(book.getTitle())
+                .name("author").value(book.getAuthor())
+                .name("genre").value(book.getGenre())
+                .name("price").money(book.getPrice())
+                .name("stock").value(book.getStockQuantity())
+                .endObject();
+    }
+
+    private static void writeItem(JsonWriter json, CartItem item) throws IOException {
+        json.beginObject()
+                .name("bookId").value(item.getBookId())
+                .name("quantity").value(item.getQuantity())
+                .name("price").money(item.getPrice())
+                .endObject();
+    }
+
+    private static void writeOrder(JsonWriter json, Order order) throws IOException {
+        json.beginObject()
+                .name("id").value(order.getId())
+                .name("date").value(order.getOrderDate().getTime())
+                .name("status").value(order.getStatus())
+                .name("total").money(order.getTotalAmount())
+                .name("items").beginArray();
+        for (CartItem item : order.getItems()) {
+            writeItem(json, item);
+        }
+        json.endArray().endObject();
+    }
+
+    private static void writePayment(JsonWriter json, Payment payment) throws IOException {
+        json.beginObject()
+                .name("id").value(payment.getId())
+                .name("date").value(payment.getPaymentDate().getTime())
+                .name("method").value(payment.getPaymentMethod())
+                .name("status").value(payment.getStatus())
+                .name("amount").money(payment.getAmount())
+                .endObject();
+    }
+
+    // Each route gets a latency timer "http<path>" and every error response counts towards "http.errors.<status>"
+    private void route(String path, Handler handler) {
+        LatencyStats latency = Metrics.timer("http" + path);
+        server.createContext(path, exchange -> {
+            long start = Metrics.start();
+            try (exchange) {
+                Request request = new Request(exchange);
+                try {
+                    handler.handle(request);
+                } catch (Exception e) {
+                    request.fail(e);
+                }
+            } finally {
+                latency.stop(start);
+            }
+        });
+    }
+
+    private interface Handler {
+        void handle(Request request) throws Exception;
+    }
+
+    private interface Body {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    private static class HttpError extends RuntimeException {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static class Request {
+        final HttpExchange exchange;
+        final String method;
+        private Map<String, String> params;
+
+        Request(HttpExchange exchange) {
+            this.exchange = exchange;
+            this.method = exchange.getRequestMethod();
+        }
+
+        void requireMethod(String expected) {
+            if (!method.equals(expected)) {
+                throw new HttpError(405, "Method not allowed");
+            }
+        }
+
+        String pathTail(String prefix) {
+            String path = exchange.getRequestURI().getPath();
+            return path.length() > prefix.length() + 1 ? path.substring(prefix.length() + 1) : "";
+        }
+
+        String bearerToken() {
+            String header = exchange.getRequestHeaders().getFirst("Authorization");
+            return header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : null;
+        }
+
+        String param(String name, String fallback) throws IOException {
+            return params().getOrDefault(name, fallback);
+        }
+
+        String required(String name) throws IOException {
+            String value = params().get(name);
+            if (value == null || value.isEmpty()) {
+                throw new IllegalArgumentException("Missing parameter: " + name);
+            }
+            return value;
+        }
+
+        int offset() throws IOException {
+            return Math.max(0, Integer.parseInt(param("offset", "0")));
+        }
+
+        int limit() throws IOException {
+            int limit = Integer.parseInt(param("limit", String.valueOf(DEFAULT_PAGE_SIZE)));
+            return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        }
+
+        private Map<String, String> params() throws IOException {
+            if (params == null) {
+                params = new HashMap<>();
+                parse(exchange.getRequestURI().getRawQuery());
+                String type = exchange.getRequestHeaders().getFirst("Content-Type");
+                if (type != null && type.startsWith("application/x-www-form-urlencoded")) {
+                    try (InputStream body = exchange.getRequestBody()) {
+                        byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+                        if (bytes.length > MAX_BODY_BYTES) {
+                            throw new HttpError(413, "Request body too large");
+                        }
+                        parse(new String(bytes, StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            return params;
+        }
+
+        private void parse(String encoded) {
+            if (encoded == null || encoded.isEmpty()) {
+                return;
+            }
+            for (String pair : encoded.split("&")) {
+                int eq = pair.indexOf('=');
+                String name = eq < 0 ? pair : pair.substring(0, eq);
+                String value = eq < 0 ? "" : pair.substring(eq + 1);
+                params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+
+        // Headers go out first with chunked encoding, then the body is encoded straight onto the socket
+        void respond(int status, Body body) throws IOException {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, 0);
+            try (JsonWriter json = new JsonWriter(new BufferedWriter(
+                    new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)))) {
+                body.write(json);
+            }
+        }
+
+        void fail(Exception e) throws IOException {
+            int status;
+            if (e instanceof HttpError) {
+                status = ((HttpError) e).status;
+            } else if (e instanceof SessionExpiredException || e instanceof UserNotFoundException) {
+                status = 401;
+            } else if (e instanceof BookNotFoundException) {
+                status = 404;
+            } else if (e instanceof InsufficientStockException || e instanceof DuplicatePaymentException) {
+                status = 409;
+            } else if (e instanceof IllegalArgumentException) {
+                status = 400;
+            } else {
+                System.out.println("Error handling " + method + " " + exchange.getRequestURI() + ": " + e);
+                status = 500;
+            }
+            Metrics.counter("http.errors." + status).increment();
+            String message = status == 500 ? "Internal server error" : e.getMessage();
+            respond(status, json -> json.beginObject().name("error").value(message).endObject());
+        }
+    }
+}
\ No newline at end of file
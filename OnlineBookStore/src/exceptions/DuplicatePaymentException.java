@@ -0,0 +1,8 @@
+// DuplicatePaymentException.java
+package exceptions;
+
+public class DuplicatePaymentException extends Exception {
+    public DuplicatePaymentException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,8 @@
+// PaymentDeclinedException.java
+package exceptions;
+
+public class PaymentDeclinedException extends Exception {
+    public PaymentDeclinedException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,8 @@
+// SessionExpiredException.java
+package exceptions;
+
+public class SessionExpiredException extends Exception {
+    public SessionExpiredException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
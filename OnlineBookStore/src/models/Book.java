@@ -1,15 +1,18 @@
 // Book.java
 package models;
 
+import utils.CsvReader;
+import utils.Money;
+
 public class Book {
     private String id;
     private String title;
     private String author;
     private String genre;
-    private double price;
-    private int stockQuantity;
+    private long price; // cents
+    private volatile int stockQuantity; // changed in place by stock movements, see CatalogSnapshot
 
-    public Book(String id, String title, String author, String genre, double price, int stockQuantity) {
+    public Book(String id, String title, String author, String genre, long price, int stockQuantity) {
         this.id = id;
         this.title = title;
         this.author = author;
@@ -31,15 +34,17 @@ public class Book {
     public String getGenre() { return genre; }
     public void setGenre(String genre) { this.genre = genre; }
 
-    public double getPrice() { return price; }
-    public void setPrice(double price) { this.price = price; }
+    public long getPrice() { return price; }
+    public void setPrice(long price) { this.price = price; }
 
     public int getStockQuantity() { return stockQuantity; }
     public void setStockQuantity(int stockQuantity) { this.stockQuantity = stockQuantity; }
 
     @Override
     public String toString() {
-        return String.format("%s,%s,%s,%s,%.2f,%d",
-                id, title, author, genre, price, stockQuantity);
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(id).append(",").append(CsvReader.escape(title)).append(",").append(CsvReader.escape(author))
+                .append(",").append(CsvReader.escape(genre)).append(",");
+        return Money.append(sb, price).append(",").append(stockQuantity).toString();
     }
 }
\ No newline at end of file
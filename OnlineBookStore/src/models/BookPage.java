@@ -0,0 +1,21 @@
+// BookPage.java
+package models;
+
+import java.util.List;
+
+public class BookPage {
+    private final List<Book> books;
+    private final String nextCursor;
+
+    public BookPage(List<Book> books, String nextCursor) {
+        this.books = books;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters
+    public List<Book> getBooks() { return books; }
+
+    // Pass back to fetch the following page; null on the last page
+    public String getNextCursor() { return nextCursor; }
+    public boolean hasMore() { return nextCursor != null; }
+}
\ No newline at end of file
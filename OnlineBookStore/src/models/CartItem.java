@@ -1,13 +1,15 @@
 package models;
 
+import utils.Money;
+
 public class CartItem {
     // CartItem.java
 
         private String bookId;
         private int quantity;
-        private double price;
+        private long price; // cents
 
-        public CartItem(String bookId, int quantity, double price) {
+        public CartItem(String bookId, int quantity, long price) {
             this.bookId = bookId;
             this.quantity = quantity;
             this.price = price;
@@ -20,11 +22,11 @@ public class CartItem {
         public int getQuantity() { return quantity; }
         public void setQuantity(int quantity) { this.quantity = quantity; }
 
-        public double getPrice() { return price; }
-        public void setPrice(double price) { this.price = price; }
+        public long getPrice() { return price; }
+        public void setPrice(long price) { this.price = price; }
 
-        public double getTotalPrice() {
-            return price * quantity;
+        public long getTotalPrice() {
+            return Money.times(price, quantity);
         }
     }
 
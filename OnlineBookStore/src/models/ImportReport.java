@@ -0,0 +1,40 @@
+// ImportReport.java
+package models;
+
+import java.util.List;
+
+public class ImportReport {
+    private final long rows;
+    private final long added;
+    private final long updated;
+    private final long rejected;
+    private final List<String> rejections; // "line N: reason", capped; rejected holds the full count
+    private final long elapsedMillis;
+
+    public ImportReport(long rows, long added, long updated, long rejected, List<String> rejections, long elapsedMillis) {
+        this.rows = rows;
+        this.added = added;
+        this.updated = updated;
+        this.rejected = rejected;
+        this.rejections = rejections;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    // Getters
+    public long getRows() { return rows; }
+    public long getAdded() { return added; }
+    public long getUpdated() { return updated; }
+    public long getRejected() { return rejected; }
+    public List<String> getRejections() { return rejections; }
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public long getRowsPerSecond() {
+        return elapsedMillis == 0 ? rows * 1000 : rows * 1000 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows: %d added, %d updated, %d rejected in %d ms (%d rows/s)",
+                rows, added, updated, rejected, elapsedMillis, getRowsPerSecond());
+    }
+}
\ No newline at end of file
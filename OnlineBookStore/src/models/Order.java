@@ -1,6 +1,8 @@
 // Order.java
 package models;
 
+import utils.Money;
+
 import java.util.Date;
 import java.util.List;
 
@@ -8,11 +10,11 @@ public class Order {
     private String id;
     private String userId;
     private List<CartItem> items;
-    private double totalAmount;
+    private long totalAmount; // cents
     private Date orderDate;
     private String status; // PENDING, PROCESSING, COMPLETED, CANCELLED
 
-    public Order(String id, String userId, List<CartItem> items, double totalAmount, Date orderDate, String status) {
+    public Order(String id, String userId, List<CartItem> items, long totalAmount, Date orderDate, String status) {
         this.id = id;
         this.userId = userId;
         this.items = items;
@@ -31,8 +33,8 @@ public class Order {
     public List<CartItem> getItems() { return items; }
     public void setItems(List<CartItem> items) { this.items = items; }
 
-    public double getTotalAmount() { return totalAmount; }
-    public void setTotalAmount(double totalAmount) { this.totalAmount = totalAmount; }
+    public long getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(long totalAmount) { this.totalAmount = totalAmount; }
 
     public Date getOrderDate() { return orderDate; }
     public void setOrderDate(Date orderDate) { this.orderDate = orderDate; }
@@ -43,11 +45,18 @@ public class Order {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        sb.append(id).append(",").append(userId).append(",").append(totalAmount).append(",")
-                .append(orderDate.getTime()).append(",").append(status);
+        sb.append(id).append(",").append(userId).append(",");
+        Money.append(sb, totalAmount).append(",")
+                .append(orderDate.getTime()).append(",").append(status).append(",");
 
-        for (CartItem item : items) {
-            sb.append(";").append(item.getBookId()).append(":").append(item.getQuantity());
+        // Items as bookId:quantity:unitPrice, separated by ';'
+        for (int i = 0; i < items.size(); i++) {
+            CartItem item = items.get(i);
+            if (i > 0) {
+                sb.append(";");
+            }
+            sb.append(item.getBookId()).append(":").append(item.getQuantity()).append(":");
+            Money.append(sb, item.getPrice());
         }
 
         return sb.toString();
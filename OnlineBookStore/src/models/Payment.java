@@ -1,17 +1,19 @@
 // Payment.java
 package models;
 
+import utils.Money;
+
 import java.util.Date;
 
 public class Payment {
     private String id;
     private String orderId;
-    private double amount;
+    private long amount; // cents
     private Date paymentDate;
     private String paymentMethod; // CREDIT_CARD, DEBIT_CARD, PAYPAL, etc.
-    private String status; // PENDING, COMPLETED, FAILED
+    private volatile String status; // PENDING, COMPLETED, FAILED; set by the payment pipeline
 
-    public Payment(String id, String orderId, double amount, Date paymentDate, String paymentMethod, String status) {
+    public Payment(String id, String orderId, long amount, Date paymentDate, String paymentMethod, String status) {
         this.id = id;
         this.orderId = orderId;
         this.amount = amount;
@@ -27,8 +29,8 @@ public class Payment {
     public String getOrderId() { return orderId; }
     public void setOrderId(String orderId) { this.orderId = orderId; }
 
-    public double getAmount() { return amount; }
-    public void setAmount(double amount) { this.amount = amount; }
+    public long getAmount() { return amount; }
+    public void setAmount(long amount) { this.amount = amount; }
 
     public Date getPaymentDate() { return paymentDate; }
     public void setPaymentDate(Date paymentDate) { this.paymentDate = paymentDate; }
@@ -41,7 +43,9 @@ public class Payment {
 
     @Override
     public String toString() {
-        return String.format("%s,%s,%.2f,%d,%s,%s",
-                id, orderId, amount, paymentDate.getTime(), paymentMethod, status);
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(id).append(",").append(orderId).append(",");
+        return Money.append(sb, amount).append(",").append(paymentDate.getTime()).append(",")
+                .append(paymentMethod).append(",").append(status).toString();
     }
 }
\ No newline at end of file
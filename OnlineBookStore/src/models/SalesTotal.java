@@ -0,0 +1,29 @@
+// SalesTotal.java
+package models;
+
+import utils.Money;
+
+// Units sold and revenue for one book, genre, day or payment method
+public class SalesTotal {
+    private final String key;
+    private final long units;
+    private final long revenue; // cents
+
+    public SalesTotal(String key, long units, long revenue) {
+        this.key = key;
+        this.units = units;
+        this.revenue = revenue;
+    }
+
+    // Getters
+    public String getKey() { return key; }
+    public long getUnits() { return units; }
+    public long getRevenue() { return revenue; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(32);
+        sb.append(key).append(",").append(units).append(",");
+        return Money.append(sb, revenue).toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+// Session.java
+package models;
+
+public class Session {
+    private final String token;
+    private final User user;
+    private final long createdAt;
+    private volatile long lastAccessedAt;
+
+    public Session(String token, User user, long createdAt) {
+        this.token = token;
+        this.user = user;
+        this.createdAt = createdAt;
+        this.lastAccessedAt = createdAt;
+    }
+
+    // Getters
+    public String getToken() { return token; }
+    public User getUser() { return user; }
+    public String getUserId() { return user.getId(); }
+    public long getCreatedAt() { return createdAt; }
+
+    public long getLastAccessedAt() { return lastAccessedAt; }
+    public void touch(long now) { this.lastAccessedAt = now; }
+}
\ No newline at end of file
@@ -1,6 +1,8 @@
 // User.java
 package models;
 
+import utils.CsvReader;
+
 public class User {
     private String id;
     private String username;
@@ -40,6 +42,7 @@ public class User {
     @Override
     public String toString() {
         return String.format("%s,%s,%s,%s,%s,%b",
-                id, username, password, email, address, isAdmin);
+                id, CsvReader.escape(username), CsvReader.escape(password), CsvReader.escape(email),
+                CsvReader.escape(address), isAdmin);
     }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+// BinaryCatalog.java
+package services;
+
+import models.Book;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Read-only, memory-mapped catalog file. Layout (big-endian):
+//   header      int magic, int bookCount, int dictionarySize
+//   dictionary  dictionarySize x (int length, UTF-8 bytes) - distinct authors and genres
+//   rows        bookCount x (int idOffset, int titleOffset, int authorRef, int genreRef, long priceCents, int stock)
+//   heap        (int length, UTF-8 bytes) per id and title, addressed by offsets from the heap start
+// Rows are fixed width, so any column of any book is read straight from the mapping on demand.
+public class BinaryCatalog {
+    // "BKC2"; version 1 stored prices as doubles and is rejected, so the caller falls back to books.csv
+    private static final int MAGIC = 0x424B4332;
+    private static final int HEADER_SIZE = 4 + 4 + 4;
+    private static final int ROW_SIZE = 4 + 4 + 4 + 4 + 8 + 4;
+
+    private final ByteBuffer buffer;
+    private final int bookCount;
+    private final String[] dictionary;
+    private final int rowsStart;
+    private final int heapStart;
+
+    // Every size and offset is checked against the file length up front, so a truncated or corrupt
+    // file fails here with an IOException instead of an IndexOutOfBoundsException on some later read
+    private BinaryCatalog(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a current binary catalog file");
+        }
+        bookCount = buffer.getInt(4);
+        int dictionarySize = buffer.getInt(8);
+        if (bookCount < 0 || dictionarySize < 0) {
+            throw new IOException("Corrupt binary catalog: negative book or dictionary count");
+        }
+        // Each entry takes at least its length prefix, which bounds the array before it is allocated
+        if (dictionarySize > (buffer.limit() - HEADER_SIZE) / 4) {
+            throw new IOException("Corrupt binary catalog: dictionary size " + dictionarySize + " exceeds the file");
+        }
+        dictionary = new String[dictionarySize];
+
+        int position = HEADER_SIZE;
+        for (int i = 0; i < dictionary.length; i++) {
+            int length = checkString(position, buffer.limit());
+            dictionary[i] = readString(position);
+            position += 4 + length;
+        }
+        rowsStart = position;
+        long rowsEnd = rowsStart + (long) bookCount * ROW_SIZE;
+        if (rowsEnd > buffer.limit()) {
+            throw new IOException("Corrupt binary catalog: " + bookCount + " rows exceed the file");
+        }
+        heapStart = (int) rowsEnd;
+
+        for (int row = 0; row < bookCount; row++) {
+            int offset = rowsStart + row * ROW_SIZE;
+            checkHeapString(buffer.getInt(offset));
+            checkHeapString(buffer.getInt(offset + 4));
+            checkDictionaryRef(buffer.getInt(offset + 8));
+            checkDictionaryRef(buffer.getInt(offset + 12));
+        }
+    }
+
+    public static BinaryCatalog open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new BinaryCatalog(mapped);
+        }
+    }
+
+    public int size() {
+        return bookCount;
+    }
+
+    public String getId(int row) {
+        return readString(heapStart + buffer.getInt(rowOffset(row)));
+    }
+
+    public String getTitle(int row) {
+        return readString(heapStart + buffer.getInt(rowOffset(row) + 4));
+    }
+
+    public String getAuthor(int row) {
+        return dictionary[buffer.getInt(rowOffset(row) + 8)];
+    }
+
+    public String getGenre(int row) {
+        return dictionary[buffer.getInt(rowOffset(row) + 12)];
+    }
+
+    public long getPrice(int row) {
+        return buffer.getLong(rowOffset(row) + 16);
+    }
+
+    public int getStockQuantity(int row) {
+        return buffer.getInt(rowOffset(row) + 24);
+    }
+
+    public Book getBook(int row) {
+        return new Book(getId(row), getTitle(row), getAuthor(row), getGenre(row), getPrice(row), getStockQuantity(row));
+    }
+
+    // Written to a temporary file and moved into place, so readers never see a partial catalog
+    public static void write(String filename, Collection<Book> books) throws IOException {
+        Map<String, Integer> dictionaryRefs = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        ByteArrayOutputStream heapBytes = new ByteArrayOutputStream();
+        DataOutputStream heap = new DataOutputStream(heapBytes);
+        ByteArrayOutputStream rowBytes = new ByteArrayOutputStream(books.size() * ROW_SIZE);
+        DataOutputStream rows = new DataOutputStream(rowBytes);
+
+        for (Book book : books) {
+            rows.writeInt(heap.size());
+            writeString(heap, book.getId());
+            rows.writeInt(heap.size());
+            writeString(heap, book.getTitle());
+            rows.writeInt(dictionaryRefs.computeIfAbsent(book.getAuthor(), k -> { dictionary.add(k); return dictionary.size() - 1; }));
+            rows.writeInt(dictionaryRefs.computeIfAbsent(book.getGenre(), k -> { dictionary.add(k); return dictionary.size() - 1; }));
+            rows.writeLong(book.getPrice());
+            rows.writeInt(book.getStockQuantity());
+        }
+
+        Path target = Paths.get(filename);
+        Path temp = Paths.get(filename + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeInt(books.size());
+            out.writeInt(dictionary.size());
+            for (String entry : dictionary) {
+                writeString(out, entry);
+            }
+            rowBytes.writeTo(out);
+            heapBytes.writeTo(out);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private int rowOffset(int row) {
+        if (row < 0 || row >= bookCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range for " + bookCount + " books");
+        }
+        return rowsStart + row * ROW_SIZE;
+    }
+
+    // Returns the length of the string at position, after checking that it lies within limit
+    private int checkString(long position, int limit) throws IOException {
+        if (position < 0 || position + 4 > limit) {
+            throw new IOException("Corrupt binary catalog: string offset " + position + " outside the file");
+        }
+        int length = buffer.getInt((int) position);
+        if (length < 0 || position + 4 + length > limit) {
+            throw new IOException("Corrupt binary catalog: string of " + length + " bytes at " + position + " overruns the file");
+        }
+        return length;
+    }
+
+    private void checkHeapString(int heapOffset) throws IOException {
+        checkString((long) heapStart + heapOffset, buffer.limit());
+    }
+
+    private void checkDictionaryRef(int ref) throws IOException {
+        if (ref < 0 || ref >= dictionary.length) {
+            throw new IOException("Corrupt binary catalog: dictionary reference " + ref + " out of range");
+        }
+    }
+
+    private String readString(int position) {
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,26 @@
+// BookSort.java
+package services;
+
+import models.Book;
+
+public enum BookSort {
+    TITLE, AUTHOR, PRICE, STOCK;
+
+    // Text sorts ignore case; numeric sorts compare as longs
+    Comparable<?> keyOf(Book book) {
+        switch (this) {
+            case TITLE:
+                return InventoryService.normalize(book.getTitle());
+            case AUTHOR:
+                return InventoryService.normalize(book.getAuthor());
+            case PRICE:
+                return book.getPrice();
+            default:
+                return (long) book.getStockQuantity();
+        }
+    }
+
+    boolean isNumeric() {
+        return this == PRICE || this == STOCK;
+    }
+}
\ No newline at end of file
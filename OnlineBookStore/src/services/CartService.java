@@ -0,0 +1,240 @@
+// CartService.java
+package services;
+
+import models.Book;
+import models.CartItem;
+import exceptions.BookNotFoundException;
+import exceptions.InsufficientStockException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Server-side shopping carts keyed by user id. Each line keeps the price the book had when it was first
+// added, so viewing a cart never touches the catalog. Carts left idle past the timeout are dropped in the
+// background. With -Dbookstore.cart.softHold=true, quantities in carts are also counted against stock, so
+// shoppers cannot collectively cart more copies than exist; checkout still reserves stock for real.
+public class CartService {
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS =
+            TimeUnit.MINUTES.toMillis(Long.getLong("bookstore.cart.idle.minutes", 60));
+    public static final boolean DEFAULT_SOFT_HOLD = Boolean.getBoolean("bookstore.cart.softHold");
+
+    private final InventoryService inventoryService;
+    private final long idleTimeoutMillis;
+    private final boolean softHold;
+    private final Map<String, Cart> carts = new ConcurrentHashMap<>();
+    // Copies of each book currently sitting in carts; only maintained when soft holds are on
+    private final Map<String, Integer> held = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CartService(InventoryService inventoryService) {
+        this(inventoryService, DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_SOFT_HOLD);
+    }
+
+    public CartService(InventoryService inventoryService, long idleTimeoutMillis, boolean softHold) {
+        this.inventoryService = inventoryService;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.softHold = softHold;
+        long sweepMillis = Math.max(1_000, Math.min(idleTimeoutMillis, TimeUnit.MINUTES.toMillis(1)));
+        sweeper.scheduleWithFixedDelay(this::evictIdle, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void addItem(String userId, String bookId, int quantity)
+            throws BookNotFoundException, InsufficientStockException {
+        if (quantity <= 0) {
+            throw new InsufficientStockException("Invalid quantity or insufficient stock");
+        }
+        Book book = inventoryService.getBookById(bookId);
+        while (true) {
+            Cart cart = carts.computeIfAbsent(userId, k -> new Cart());
+            synchronized (cart) {
+                // Lost a race with clear or eviction; start again with a fresh cart
+                if (cart.detached) {
+                    continue;
+                }
+                CartItem item = cart.items.get(bookId);
+                int current = item == null ? 0 : item.getQuantity();
+                adjust(book, current, current + quantity);
+                if (item == null) {
+                    cart.items.put(bookId, new CartItem(bookId, quantity, book.getPrice()));
+                } else {
+                    item.setQuantity(current + quantity);
+                }
+                cart.touch();
+                return;
+            }
+        }
+    }
+
+    // Returns false when the book is not in the cart
+    public boolean updateQuantity(String userId, String bookId, int quantity)
+            throws BookNotFoundException, InsufficientStockException {
+        if (quantity <= 0) {
+            throw new InsufficientStockException("Invalid quantity or insufficient stock");
+        }
+        Cart cart = carts.get(userId);
+        if (cart == null) {
+            return false;
+        }
+        Book book = inventoryService.getBookById(bookId);
+        synchronized (cart) {
+            CartItem item = cart.items.get(bookId);
+            if (item == null) {
+                return false;
+            }
+            adjust(book, item.getQuantity(), quantity);
+            item.setQuantity(quantity);
+            cart.touch();
+            return true;
+        }
+    }
+
+    public boolean removeItem(String userId, String bookId) {
+        Cart cart = carts.get(userId);
+        if (cart == null) {
+            return false;
+        }
+        synchronized (cart) {
+            CartItem item = cart.items.remove(bookId);
+            if (item == null) {
+                return false;
+            }
+            release(bookId, item.getQuantity());
+            cart.touch();
+            return true;
+        }
+    }
+
+    // Copies, so the caller can hand them to an order while the cart keeps changing
+    public List<CartItem> getItems(String userId) {
+        Cart cart = carts.get(userId);
+        List<CartItem> items = new ArrayList<>();
+        if (cart == null) {
+            return items;
+        }
+        synchronized (cart) {
+            cart.touch();
+            for (CartItem item : cart.items.values()) {
+                items.add(new CartItem(item.getBookId(), item.getQuantity(), item.getPrice()));
+            }
+        }
+        return items;
+    }
+
+    public long getTotal(String userId) {
+        long total = 0;
+        for (CartItem item : getItems(userId)) {
+            total += item.getTotalPrice();
+        }
+        return total;
+    }
+
+    // Takes checked-out quantities back out of the cart, keeping anything added since the snapshot
+    public void removeItems(String userId, List<CartItem> purchased) {
+        Cart cart = carts.get(userId);
+        if (cart == null) {
+            return;
+        }
+        synchronized (cart) {
+            for (CartItem bought : purchased) {
+                CartItem item = cart.items.get(bought.getBookId());
+                if (item == null) {
+                    continue;
+                }
+                int removed = Math.min(item.getQuantity(), bought.getQuantity());
+                release(item.getBookId(), removed);
+                if (removed == item.getQuantity()) {
+                    cart.items.remove(item.getBookId());
+                } else {
+                    item.setQuantity(item.getQuantity() - removed);
+                }
+            }
+            if (cart.items.isEmpty()) {
+                detach(userId, cart);
+            }
+        }
+    }
+
+    public void clear(String userId) {
+        Cart cart = carts.get(userId);
+        if (cart != null) {
+            synchronized (cart) {
+                detach(userId, cart);
+            }
+        }
+    }
+
+    public int getCartCount() {
+        return carts.size();
+    }
+
+    // Checks a quantity change against stock and, with soft holds, moves the difference into the hold
+    private void adjust(Book book, int from, int to) throws InsufficientStockException {
+        if (!softHold) {
+            if (to > book.getStockQuantity()) {
+                throw new InsufficientStockException("Invalid quantity or insufficient stock");
+            }
+            return;
+        }
+
+        int delta = to - from;
+        boolean[] granted = {true};
+        held.compute(book.getId(), (id, current) -> {
+            int total = (current == null ? 0 : current) + delta;
+            if (delta > 0 && total > book.getStockQuantity()) {
+                granted[0] = false;
+                return current;
+            }
+            return total <= 0 ? null : total;
+        });
+        if (!granted[0]) {
+            throw new InsufficientStockException("Not enough copies of " + book.getTitle() + " left to add to cart");
+        }
+    }
+
+    private void release(String bookId, int quantity) {
+        if (softHold && quantity > 0) {
+            held.computeIfPresent(bookId, (id, current) -> current > quantity ? current - quantity : null);
+        }
+    }
+
+    // Caller holds the cart's monitor
+    private void detach(String userId, Cart cart) {
+        carts.remove(userId, cart);
+        cart.detached = true;
+        for (CartItem item : cart.items.values()) {
+            release(item.getBookId(), item.getQuantity());
+        }
+        cart.items.clear();
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        carts.forEach((userId, cart) -> {
+            synchronized (cart) {
+                if (now - cart.lastAccessedAt > idleTimeoutMillis) {
+                    detach(userId, cart);
+                }
+            }
+        });
+    }
+
+    private static final class Cart {
+        final Map<String, CartItem> items = new LinkedHashMap<>();
+        volatile long lastAccessedAt = System.currentTimeMillis();
+        boolean detached;
+
+        void touch() {
+            lastAccessedAt = System.currentTimeMillis();
+        }
+    }
+}
\ No newline at end of file
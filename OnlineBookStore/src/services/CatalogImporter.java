@@ -0,0 +1,209 @@
+// CatalogImporter.java
+package services;
+
+import models.Book;
+import models.ImportReport;
+import utils.CsvReader;
+import utils.IDGenerator;
+
+import java.io.BufferedReader;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Bulk CSV import behind InventoryService.importBooks. The calling thread streams the input and cuts
+// it into chunks of whole records; a fork-join pool validates and parses one chunk while the next is
+// read; each parsed chunk is upserted as one batch. Nothing is journaled along the way - the caller
+// publishes and persists the whole catalog once at the end.
+class CatalogImporter {
+    private static final int CHUNK_ROWS = 8192;
+    private static final int SPLIT_ROWS = 512;
+    private static final int MAX_REPORTED_REJECTIONS = 1000;
+    // Readers see imported books at least this often while a long import runs
+    private static final long PUBLISH_INTERVAL_NANOS = 1_000_000_000L;
+    private static final int PARALLELISM =
+            Integer.getInteger("bookstore.import.threads", Runtime.getRuntime().availableProcessors());
+
+    private final InventoryService inventoryService;
+    private long rows;
+    private long added;
+    private long updated;
+    private long rejected;
+    private final List<String> rejections = new ArrayList<>();
+    private long lastPublished = System.nanoTime();
+
+    CatalogImporter(InventoryService inventoryService) {
+        this.inventoryService = inventoryService;
+    }
+
+    void run(Reader input) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try (BufferedReader reader = new BufferedReader(input, 1 << 16)) {
+            Chunk chunk = Chunk.read(reader, 0);
+            while (chunk.rows > 0) {
+                ForkJoinTask<Void> parsing = pool.submit(new ParseTask(chunk, 0, chunk.rows));
+                Chunk next = Chunk.read(reader, chunk.lastLine);
+                parsing.join();
+                apply(chunk);
+                chunk = next;
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    ImportReport report(long elapsedMillis) {
+        return new ImportReport(rows, added, updated, rejected, rejections, elapsedMillis);
+    }
+
+    private void apply(Chunk chunk) {
+        List<Book> batch = new ArrayList<>(chunk.rows);
+        for (int i = 0; i < chunk.rows; i++) {
+            if (chunk.books[i] != null) {
+                batch.add(chunk.books[i]);
+            } else if (chunk.errors[i] != null) {
+                rejected++;
+                if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                    rejections.add("line " + chunk.lines[i] + ": " + chunk.errors[i]);
+                }
+            } else {
+                continue; // header
+            }
+            rows++;
+        }
+        boolean publish = System.nanoTime() - lastPublished >= PUBLISH_INTERVAL_NANOS;
+        int replaced = inventoryService.upsertBooks(batch, publish);
+        if (publish) {
+            lastPublished = System.nanoTime();
+        }
+        updated += replaced;
+        added += batch.size() - replaced;
+    }
+
+    // Whole records only: a quoted field may span lines, so a chunk never ends inside quotes
+    private static class Chunk {
+        int rows;
+        int lastLine;
+        char[] text;
+        final int[] starts = new int[CHUNK_ROWS + 1];
+        final int[] lines = new int[CHUNK_ROWS];
+        Book[] books;
+        String[] errors;
+
+        static Chunk read(BufferedReader reader, int lineNumber) throws IOException {
+            Chunk chunk = new Chunk();
+            StringBuilder text = new StringBuilder(CHUNK_ROWS * 64);
+            boolean quoted = false;
+            String line;
+            while ((chunk.rows < CHUNK_ROWS || quoted) && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!quoted) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    chunk.starts[chunk.rows] = text.length();
+                    chunk.lines[chunk.rows] = lineNumber;
+                    chunk.rows++;
+                }
+                text.append(line).append('\n');
+                for (int i = 0; i < line.length(); i++) {
+                    if (line.charAt(i) == '"') {
+                        quoted = !quoted;
+                    }
+                }
+            }
+
+            chunk.starts[chunk.rows] = text.length();
+            chunk.lastLine = lineNumber;
+            chunk.text = new char[text.length()];
+            text.getChars(0, text.length(), chunk.text, 0);
+            chunk.books = new Book[chunk.rows];
+            chunk.errors = new String[chunk.rows];
+            return chunk;
+        }
+    }
+
+    // Each leaf parses its rows with its own CsvReader and writes results into the chunk's slots
+    private static class ParseTask extends RecursiveAction {
+        private final Chunk chunk;
+        private final int from;
+        private final int to;
+
+        ParseTask(Chunk chunk, int from, int to) {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_ROWS) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(chunk, from, middle), new ParseTask(chunk, middle, to));
+                return;
+            }
+
+            int offset = chunk.starts[from];
+            CsvReader csv = new CsvReader(new CharArrayReader(chunk.text, offset, chunk.starts[to] - offset));
+            try {
+                int i = from;
+                for (; i < to && csv.next(); i++) {
+                    try {
+                        chunk.books[i] = parse(csv, chunk.lines[i]);
+                    } catch (RuntimeException e) {
+                        chunk.errors[i] = e.getMessage();
+                    }
+                }
+                // Only reachable with unbalanced quotes, which leave fewer records than lines
+                for (; i < to; i++) {
+                    chunk.errors[i] = "malformed record";
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // id,title,author,genre,price,stock - a blank id gets a new one; returns null for a header row
+    private static Book parse(CsvReader csv, int line) {
+        if (csv.fieldCount() != 6) {
+            throw new IllegalArgumentException("expected 6 fields but found " + csv.fieldCount());
+        }
+        if (line == 1 && csv.getString(4).trim().equalsIgnoreCase("price")) {
+            return null;
+        }
+
+        String id = csv.getString(0).trim();
+        String title = csv.getString(1).trim();
+        String author = csv.getString(2).trim();
+        String genre = csv.getString(3).trim();
+        if (title.isEmpty()) {
+            throw new IllegalArgumentException("missing title");
+        }
+        if (author.isEmpty()) {
+            throw new IllegalArgumentException("missing author");
+        }
+
+        long price;
+        int stock;
+        try {
+            price = csv.getCents(4);
+            stock = csv.getInt(5);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid number: " + e.getMessage());
+        }
+        if (price < 0) {
+            throw new IllegalArgumentException("negative price");
+        }
+        if (stock < 0) {
+            throw new IllegalArgumentException("negative stock");
+        }
+        return new Book(id.isEmpty() ? IDGenerator.generateID() : id, title, author, genre, price, stock);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+// CatalogSnapshot.java
+package services;
+
+import models.Book;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// One published version of the catalog. Its lists and maps never change once built, so any number
+// of readers can share it without copying or locking; writers publish a whole new snapshot instead.
+// The one exception is each book's stock counter, which is updated in place so that the steady
+// stream of stock movements never has to republish the catalog.
+public class CatalogSnapshot {
+    private final long version;
+    private final List<Book> books;
+    private final Map<String, Book> booksById;
+    private final Map<String, List<Book>> booksByAuthor;
+    private final Map<String, List<Book>> booksByGenre;
+
+    CatalogSnapshot(long version, Collection<Book> books,
+                    Map<String, Map<String, Book>> booksByAuthor, Map<String, Map<String, Book>> booksByGenre) {
+        this.version = version;
+        this.books = List.copyOf(books);
+
+        Map<String, Book> byId = new HashMap<>(this.books.size() * 4 / 3 + 1);
+        for (Book book : this.books) {
+            byId.put(book.getId(), book);
+        }
+        this.booksById = Collections.unmodifiableMap(byId);
+        this.booksByAuthor = freeze(booksByAuthor);
+        this.booksByGenre = freeze(booksByGenre);
+    }
+
+    private static Map<String, List<Book>> freeze(Map<String, Map<String, Book>> index) {
+        Map<String, List<Book>> frozen = new HashMap<>(index.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Map<String, Book>> entry : index.entrySet()) {
+            frozen.put(entry.getKey(), List.copyOf(entry.getValue().values()));
+        }
+        return Collections.unmodifiableMap(frozen);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return books.size();
+    }
+
+    // Unmodifiable, in catalog order
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    // Null when no book has the id
+    public Book getBook(String id) {
+        return booksById.get(id);
+    }
+
+    public List<Book> getBooksByAuthor(String author) {
+        return booksByAuthor.getOrDefault(InventoryService.normalize(author), List.of());
+    }
+
+    public List<Book> getBooksByGenre(String genre) {
+        return booksByGenre.getOrDefault(InventoryService.normalize(genre), List.of());
+    }
+}
\ No newline at end of file
@@ -2,94 +2,678 @@
 package services;
 
 import models.Book;
+import models.BookPage;
+import models.CartItem;
+import models.ImportReport;
 import exceptions.BookNotFoundException;
 import exceptions.InsufficientStockException;
+import utils.CsvReader;
 import utils.FileHandler;
+import utils.GroupCommitWriter;
 import utils.IDGenerator;
+import utils.LatencyStats;
+import utils.Metrics;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 public class InventoryService {
-    private static final String BOOKS_FILE = "data/books.csv";
-    private List<Book> books;
+    // The journal is compacted once it outgrows this many times the size of books.csv, or the floor
+    private static final int COMPACTION_RATIO = 2;
+    private static final long MIN_COMPACTION_BYTES = 64 * 1024;
+    private static final int COMMIT_BATCH_SIZE = 256;
+    private static final long COMMIT_DELAY_MILLIS = 2;
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
+    private static final int LOCK_STRIPES = 64;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final LatencyStats SEARCH_LATENCY = Metrics.timer("books.search");
+    private static final LatencyStats BROWSE_LATENCY = Metrics.timer("books.browse");
+    private static final LatencyStats JOURNAL_LATENCY = Metrics.timer("books.journal");
+    private static final LatencyStats COMPACT_LATENCY = Metrics.timer("books.compact");
+    private static final LatencyStats IMPORT_LATENCY = Metrics.timer("books.import");
+    private final String booksFile = FileHandler.dataFile("books.csv");
+    private final String booksJournal = FileHandler.dataFile("books.journal");
+    // Journal records moved aside by a compaction still in progress, replayed before books.journal
+    private final String booksJournalRotated = FileHandler.dataFile("books.journal.old");
+    private final String booksSnapshot = FileHandler.dataFile("books.bin");
+    private Map<String, Book> books;
+    // The same books keyed for lookup without the monitor, so stock changes never have to take it
+    private final Map<String, Book> workingBooks = new ConcurrentHashMap<>();
+    private Map<String, Map<String, Book>> booksByAuthor;
+    private Map<String, Map<String, Book>> booksByGenre;
+    // Keys each book is currently filed under; callers may mutate a Book before handing it to updateBook
+    private Map<String, String> indexedAuthors;
+    private Map<String, String> indexedGenres;
+    private SearchIndex searchIndex;
+    // The maps above are the writers' working copy, guarded by this service's monitor; readers only
+    // ever see the immutable snapshot published after each change
+    private volatile CatalogSnapshot snapshot;
+    // Sorted browse indexes, each built on first use and then kept up to date by every writer
+    private final Map<BookSort, SortedBookIndex> sortIndexes = new ConcurrentHashMap<>();
+    private GroupCommitWriter journalWriter;
+    private final AtomicLong journalBytes = new AtomicLong();
+    private volatile long catalogBytes;
+    // Held for a whole compaction, and for a whole import so that no compaction writes out a
+    // catalog missing rows the import has applied but not yet published
+    private final Object compactionLock = new Object();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "books-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Stock changes lock the stripes of the books involved, always in ascending order, and nothing
+    // else. Edits take the stripe of their book before the monitor of this service, which guards
+    // the catalog structure; whole-catalog writers take every stripe first.
+    private final ReentrantLock[] stockLocks = new ReentrantLock[LOCK_STRIPES];
 
     public InventoryService() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stockLocks[i] = new ReentrantLock();
+        }
         loadBooks();
+        journalWriter = new GroupCommitWriter(booksJournal, COMMIT_BATCH_SIZE, COMMIT_DELAY_MILLIS);
+        // A rotated journal left behind means a compaction did not finish; finish it now
+        if (FileHandler.fileExists(booksJournalRotated) || journalBytes.get() > compactionThreshold()) {
+            scheduleCompaction();
+        }
     }
 
     private void loadBooks() {
-        books = new ArrayList<>();
-        List<String> lines = FileHandler.readFile(BOOKS_FILE);
+        clearIndexes();
+
+        // The binary snapshot is written alongside books.csv on compaction; a CSV edited or
+        // imported since then is newer and takes precedence. After falling back to the CSV the
+        // snapshot is rewritten from it, so the next start gets the mapped fast path.
+        boolean snapshotCurrent = FileHandler.fileExists(booksSnapshot)
+                && FileHandler.lastModified(booksSnapshot) >= FileHandler.lastModified(booksFile);
+        if ((!snapshotCurrent || !loadSnapshot()) && loadCsv()) {
+            writeSnapshot(books.values());
+        }
+        catalogBytes = FileHandler.fileSize(booksFile);
+
+        replayJournal(booksJournalRotated);
+        replayJournal(booksJournal);
+        publish();
+    }
+
+    private void clearIndexes() {
+        books = new LinkedHashMap<>();
+        workingBooks.clear();
+        booksByAuthor = new HashMap<>();
+        booksByGenre = new HashMap<>();
+        indexedAuthors = new HashMap<>();
+        indexedGenres = new HashMap<>();
+        searchIndex = new SearchIndex();
+    }
+
+    // A snapshot that fails part-way leaves nothing behind, so the CSV fallback starts from empty maps
+    private boolean loadSnapshot() {
+        try {
+            BinaryCatalog catalog = BinaryCatalog.open(booksSnapshot);
+            for (int row = 0; row < catalog.size(); row++) {
+                index(catalog.getBook(row));
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+            clearIndexes();
+            return false;
+        }
+    }
+
+    private boolean loadCsv() {
+        try (CsvReader csv = CsvReader.open(booksFile)) {
+            while (csv.next()) {
+                if (csv.fieldCount() == 6) {
+                    index(readBook(csv, 0));
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private Book readBook(CsvReader csv, int offset) {
+        return new Book(
+                csv.getString(offset), csv.getString(offset + 1), csv.getString(offset + 2), csv.getString(offset + 3),
+                csv.getCents(offset + 4), csv.getInt(offset + 5)
+        );
+    }
+
+    // Journal records are idempotent (PUT,<book> / DEL,<id> / STK,<id>,<qty>), so replaying
+    // a journal that was already folded into the snapshot before a crash is harmless.
+    private void replayJournal(String journal) {
+        if (!FileHandler.fileExists(journal)) {
+            return;
+        }
+
+        try (CsvReader csv = CsvReader.open(journal)) {
+            while (csv.next()) {
+                switch (csv.getString(0)) {
+                    case "PUT":
+                        if (csv.fieldCount() == 7) {
+                            index(readBook(csv, 1));
+                        }
+                        break;
+                    case "DEL":
+                        if (csv.fieldCount() == 2) {
+                            unindex(csv.getString(1));
+                        }
+                        break;
+                    case "STK":
+                        Book book = csv.fieldCount() == 3 ? books.get(csv.getString(1)) : null;
+                        if (book != null) {
+                            book.setStockQuantity(csv.getInt(2));
+                        }
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+        }
+        journalBytes.addAndGet(FileHandler.fileSize(journal));
+    }
+
+    // Upsert: a book that is already indexed is first removed from its previous author/genre buckets
+    private void index(Book book) {
+        String author = normalize(book.getAuthor());
+        String genre = normalize(book.getGenre());
+
+        removeFromIndex(booksByAuthor, indexedAuthors.get(book.getId()), book.getId());
+        removeFromIndex(booksByGenre, indexedGenres.get(book.getId()), book.getId());
+        books.put(book.getId(), book);
+        workingBooks.put(book.getId(), book);
+        booksByAuthor.computeIfAbsent(author, k -> new LinkedHashMap<>()).put(book.getId(), book);
+        booksByGenre.computeIfAbsent(genre, k -> new LinkedHashMap<>()).put(book.getId(), book);
+        indexedAuthors.put(book.getId(), author);
+        indexedGenres.put(book.getId(), genre);
+        searchIndex.add(book);
+        sortIndexes.forEach((sort, index) -> index.put(book.getId(), sort.keyOf(book)));
+    }
+
+    private void unindex(String id) {
+        books.remove(id);
+        workingBooks.remove(id);
+        removeFromIndex(booksByAuthor, indexedAuthors.remove(id), id);
+        removeFromIndex(booksByGenre, indexedGenres.remove(id), id);
+        searchIndex.remove(id);
+        sortIndexes.values().forEach(index -> index.remove(id));
+    }
+
+    private void removeFromIndex(Map<String, Map<String, Book>> index, String key, String id) {
+        Map<String, Book> entries = index.get(key);
+        if (entries != null) {
+            entries.remove(id);
+            if (entries.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    static String normalize(String key) {
+        return key.trim().toLowerCase();
+    }
+
+    // Caller holds this service's monitor (or is still loading)
+    private void publish() {
+        long version = snapshot == null ? 1 : snapshot.getVersion() + 1;
+        snapshot = new CatalogSnapshot(version, books.values(), booksByAuthor, booksByGenre);
+    }
+
+    // Queued while the caller still holds the locks for its books, so each book's records reach the
+    // journal in the order they were made; the caller waits for them only after letting go
+    private CompletableFuture<Void> appendToJournal(List<String> records) {
+        CompletableFuture<Void> written = journalWriter.appendAll(records);
+        long bytes = 0;
+        for (String record : records) {
+            bytes += record.length() + 1;
+        }
+        if (journalBytes.addAndGet(bytes) > compactionThreshold()) {
+            scheduleCompaction();
+        }
+        return written;
+    }
+
+    private void awaitJournal(CompletableFuture<Void> written) {
+        long start = Metrics.start();
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            // Counted and logged by the writer; the change itself stays applied in memory
+        }
+        JOURNAL_LATENCY.stop(start);
+    }
+
+    // Rewriting the catalog costs in proportion to its size, so the journal is allowed to grow in
+    // proportion too; the floor keeps a small catalog from being rewritten every few changes
+    private long compactionThreshold() {
+        return COMPACTION_RATIO * Math.max(catalogBytes, MIN_COMPACTION_BYTES);
+    }
+
+    // Runs on the compactor thread, so no writer ever waits for the catalog to be rewritten
+    private void scheduleCompaction() {
+        if (compactionScheduled.compareAndSet(false, true)) {
+            try {
+                compactor.execute(() -> {
+                    compactionScheduled.set(false);
+                    compact();
+                });
+            } catch (RejectedExecutionException e) {
+                // Stopped; the journal is replayed on the next start instead
+                compactionScheduled.set(false);
+            }
+        }
+    }
+
+    // Flushes the journal records still being written and stops the writer and compactor threads
+    public void stop() {
+        compactor.shutdown();
+        journalWriter.stop();
+    }
+
+    // Rewrites books.csv and books.bin and drops the journal records they now cover, without
+    // holding any lock that writers take: the journal is rotated first, so appends carry on into a
+    // fresh books.journal while the catalog is written. Every record in the rotated journal was
+    // applied, and every book change published, before the record was queued, so the catalog read
+    // after the rotation covers them all. Records that reach the new journal meanwhile may be
+    // covered too, which is harmless since replaying them is idempotent.
+    public void compact() {
+        synchronized (compactionLock) {
+            long start = Metrics.start();
+            // A rotated journal still present is from a compaction that failed; the catalog about to
+            // be written covers it as well, so it is kept rather than replaced
+            if (!FileHandler.fileExists(booksJournalRotated)) {
+                journalBytes.set(0);
+                try {
+                    journalWriter.rotate(booksJournalRotated).join();
+                } catch (CompletionException e) {
+                    COMPACT_LATENCY.stop(start);
+                    return;
+                }
+            }
 
-        for (String line : lines) {
-            String[] parts = line.split(",");
-            if (parts.length == 6) {
-                Book book = new Book(
-                        parts[0], parts[1], parts[2], parts[3],
-                        Double.parseDouble(parts[4]), Integer.parseInt(parts[5])
-                );
-                books.add(book);
+            List<Book> catalog = snapshot.getBooks();
+            List<String> lines = catalog.stream()
+                    .map(Book::toString)
+                    .collect(Collectors.toList());
+            // The rotated journal only holds deltas, so it is deleted only once books.csv is safely in place
+            if (!FileHandler.replaceFile(booksFile, lines)) {
+                COMPACT_LATENCY.stop(start);
+                return;
             }
+            catalogBytes = FileHandler.fileSize(booksFile);
+            writeSnapshot(catalog);
+            FileHandler.deleteFile(booksJournalRotated);
+            COMPACT_LATENCY.stop(start);
         }
     }
 
-    private void saveBooks() {
-        List<String> lines = books.stream()
-                .map(Book::toString)
-                .collect(Collectors.toList());
-        FileHandler.writeFile(BOOKS_FILE, lines);
+    private void writeSnapshot(Collection<Book> catalog) {
+        try {
+            BinaryCatalog.write(booksSnapshot, catalog);
+        } catch (IOException e) {
+            Metrics.counter("file.errors").increment();
+            System.out.println("Error writing to file: " + e.getMessage());
+        }
     }
 
+    // The current published catalog; use it directly when several reads must agree with each other
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Unmodifiable view of the current snapshot, shared rather than copied
     public List<Book> getAllBooks() {
-        return new ArrayList<>(books);
+        return snapshot.getBooks();
+    }
+
+    public List<Book> getBooksByAuthor(String author) {
+        return snapshot.getBooksByAuthor(author);
+    }
+
+    public List<Book> getBooksByGenre(String genre) {
+        return snapshot.getBooksByGenre(genre);
     }
 
     public List<Book> searchBooks(String query) {
-        return books.stream()
-                .filter(book ->
-                        book.getTitle().toLowerCase().contains(query.toLowerCase()) ||
-                                book.getAuthor().toLowerCase().contains(query.toLowerCase()) ||
-                                book.getGenre().toLowerCase().contains(query.toLowerCase()))
-                .collect(Collectors.toList());
+        return searchBooks(query, DEFAULT_SEARCH_LIMIT);
+    }
+
+    public List<Book> searchBooks(String query, int limit) {
+        long start = Metrics.start();
+        try {
+            return search(query, limit);
+        } finally {
+            SEARCH_LATENCY.stop(start);
+        }
+    }
+
+    private List<Book> search(String query, int limit) {
+        CatalogSnapshot catalog = snapshot;
+        if (query.trim().isEmpty()) {
+            return catalog.getBooks().subList(0, Math.min(limit, catalog.size()));
+        }
+
+        List<Book> results = new ArrayList<>();
+        for (String id : searchIndex.search(query, limit)) {
+            Book book = catalog.getBook(id);
+            // The index can run slightly ahead of the snapshot while a writer is publishing
+            if (book != null) {
+                results.add(book);
+            }
+        }
+        return results;
+    }
+
+    // Cursor-based paging over a sorted index: each page costs O(log n + limit) however deep it is.
+    // A null cursor starts from the beginning; pass back BookPage.getNextCursor() for the next page.
+    public BookPage browseBooks(BookSort sort, boolean descending, String cursor, int limit) {
+        long start = Metrics.start();
+        try {
+            return browse(sort, descending, cursor, limit);
+        } finally {
+            BROWSE_LATENCY.stop(start);
+        }
+    }
+
+    private BookPage browse(BookSort sort, boolean descending, String cursor, int limit) {
+        SortedBookIndex index = sortIndex(sort);
+        CatalogSnapshot catalog = snapshot;
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        List<Book> page = new ArrayList<>(size);
+        SortedBookIndex.Entry last = decodeCursor(sort, descending, cursor);
+        while (true) {
+            // One extra entry tells us whether another page follows
+            int wanted = size - page.size() + 1;
+            List<SortedBookIndex.Entry> entries = index.page(last, descending, wanted);
+            for (SortedBookIndex.Entry entry : entries) {
+                if (page.size() == size) {
+                    return new BookPage(page, encodeCursor(sort, descending, last));
+                }
+                // Entries for a book removed after this snapshot was taken are skipped
+                Book book = catalog.getBook(entry.id);
+                if (book != null) {
+                    page.add(book);
+                }
+                last = entry;
+            }
+            if (entries.size() < wanted) {
+                return new BookPage(page, null);
+            }
+        }
+    }
+
+    private SortedBookIndex sortIndex(BookSort sort) {
+        SortedBookIndex index = sortIndexes.get(sort);
+        if (index != null) {
+            return index;
+        }
+
+        // Built once with every stripe and the monitor held, so no stock change or edit can slip
+        // in between reading a book and the index starting to receive updates
+        lockAllStripes();
+        try {
+            synchronized (this) {
+                index = sortIndexes.get(sort);
+                if (index == null) {
+                    index = new SortedBookIndex();
+                    for (Book book : books.values()) {
+                        index.put(book.getId(), sort.keyOf(book));
+                    }
+                    sortIndexes.put(sort, index);
+                }
+                return index;
+            }
+        } finally {
+            unlockAllStripes();
+        }
+    }
+
+    // In ascending order, like applyStockDeltas, so whole-catalog writers cannot deadlock with it
+    private void lockAllStripes() {
+        for (ReentrantLock lock : stockLocks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAllStripes() {
+        for (int i = stockLocks.length - 1; i >= 0; i--) {
+            stockLocks[i].unlock();
+        }
+    }
+
+    // Opaque to callers: base64 of sort, direction, key and id of the last book on the page
+    private static String encodeCursor(BookSort sort, boolean descending, SortedBookIndex.Entry last) {
+        String raw = sort + "\0" + (descending ? "d" : "a") + "\0" + last.key + "\0" + last.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SortedBookIndex.Entry decodeCursor(BookSort sort, boolean descending, String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\0", 4);
+            if (parts.length != 4 || !parts[0].equals(sort.name()) || !parts[1].equals(descending ? "d" : "a")) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort");
+            }
+            Comparable<?> key = sort.isNumeric() ? (Comparable<?>) Long.parseLong(parts[2]) : parts[2];
+            return new SortedBookIndex.Entry(key, parts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage());
+        }
     }
 
     public Book getBookById(String id) throws BookNotFoundException {
-        return books.stream()
-                .filter(book -> book.getId().equals(id))
-                .findFirst()
-                .orElseThrow(() -> new BookNotFoundException("Book with ID " + id + " not found"));
+        Book book = snapshot.getBook(id);
+        if (book == null) {
+            throw new BookNotFoundException("Book with ID " + id + " not found");
+        }
+        return book;
     }
 
     public void addBook(Book book) {
-        book.setId(IDGenerator.generateID());
-        books.add(book);
-        saveBooks();
+        CompletableFuture<Void> written;
+        synchronized (this) {
+            book.setId(IDGenerator.generateID());
+            index(book);
+            publish();
+            written = appendToJournal(List.of("PUT," + book));
+        }
+        awaitJournal(written);
+    }
+
+    // Streams a CSV of id,title,author,genre,price,stock rows into the catalog: rows with a known id
+    // replace that book, rows with a blank id are added under a new one, invalid rows are reported
+    // rather than stopping the import. The catalog is written out once, when the whole file is in or
+    // reading it fails; in the latter case the rows applied so far are kept.
+    public ImportReport importBooks(String filename) throws IOException {
+        return importBooks(new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8));
+    }
+
+    public ImportReport importBooks(Reader input) throws IOException {
+        long start = System.nanoTime();
+        CatalogImporter importer = new CatalogImporter(this);
+        synchronized (compactionLock) {
+            try {
+                importer.run(input);
+            } finally {
+                // Batches applied before a failure are live, so they are published and saved either way
+                synchronized (this) {
+                    publish();
+                }
+                compact();
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        IMPORT_LATENCY.record(elapsed);
+        return importer.report(elapsed / 1_000_000);
+    }
+
+    // One batch of an import, indexed without journaling; returns how many of the books replaced
+    // one already in the catalog. Publishing copies the whole catalog, so the importer asks for it
+    // only now and then rather than on every batch.
+    int upsertBooks(List<Book> batch, boolean publish) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        lockAllStripes();
+        try {
+            synchronized (this) {
+                int replaced = 0;
+                for (Book book : batch) {
+                    if (books.containsKey(book.getId())) {
+                        replaced++;
+                    }
+                    index(book);
+                }
+                if (publish) {
+                    publish();
+                }
+                return replaced;
+            }
+        } finally {
+            unlockAllStripes();
+        }
     }
 
     public void updateBook(Book updatedBook) throws BookNotFoundException {
-        Book book = getBookById(updatedBook.getId());
-        book.setTitle(updatedBook.getTitle());
-        book.setAuthor(updatedBook.getAuthor());
-        book.setGenre(updatedBook.getGenre());
-        book.setPrice(updatedBook.getPrice());
-        book.setStockQuantity(updatedBook.getStockQuantity());
-        saveBooks();
+        CompletableFuture<Void> written;
+        ReentrantLock lock = stockLocks[stripeFor(updatedBook.getId())];
+        lock.lock();
+        try {
+            synchronized (this) {
+                getBookById(updatedBook.getId());
+                // A fresh instance, so readers holding the previous snapshot keep a consistent book
+                Book book = new Book(updatedBook.getId(), updatedBook.getTitle(), updatedBook.getAuthor(),
+                        updatedBook.getGenre(), updatedBook.getPrice(), updatedBook.getStockQuantity());
+                index(book);
+                publish();
+                written = appendToJournal(List.of("PUT," + book));
+            }
+        } finally {
+            lock.unlock();
+        }
+        awaitJournal(written);
     }
 
     public void removeBook(String id) throws BookNotFoundException {
-        Book book = getBookById(id);
-        books.remove(book);
-        saveBooks();
+        CompletableFuture<Void> written;
+        ReentrantLock lock = stockLocks[stripeFor(id)];
+        lock.lock();
+        try {
+            synchronized (this) {
+                getBookById(id);
+                unindex(id);
+                publish();
+                written = appendToJournal(List.of("DEL," + id));
+            }
+        } finally {
+            lock.unlock();
+        }
+        awaitJournal(written);
     }
 
     public void updateStock(String bookId, int quantity) throws BookNotFoundException, InsufficientStockException {
-        Book book = getBookById(bookId);
-        if (book.getStockQuantity() + quantity < 0) {
-            throw new InsufficientStockException("Insufficient stock for book: " + book.getTitle());
+        Map<String, Integer> deltas = new TreeMap<>();
+        deltas.put(bookId, quantity);
+        applyStockDeltas(deltas);
+    }
+
+    // Takes stock for every item in the cart, or for none of them if any book is missing or short
+    public void reserveStock(List<CartItem> items) throws BookNotFoundException, InsufficientStockException {
+        Map<String, Integer> deltas = new TreeMap<>();
+        for (CartItem item : items) {
+            deltas.merge(item.getBookId(), -item.getQuantity(), Integer::sum);
         }
-        book.setStockQuantity(book.getStockQuantity() + quantity);
-        saveBooks();
+        applyStockDeltas(deltas);
+    }
+
+    public void releaseStock(List<CartItem> items) throws BookNotFoundException, InsufficientStockException {
+        Map<String, Integer> deltas = new TreeMap<>();
+        for (CartItem item : items) {
+            deltas.merge(item.getBookId(), item.getQuantity(), Integer::sum);
+        }
+        applyStockDeltas(deltas);
+    }
+
+    private void applyStockDeltas(Map<String, Integer> deltas) throws BookNotFoundException, InsufficientStockException {
+        int[] stripes = deltas.keySet().stream()
+                .mapToInt(this::stripeFor)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        CompletableFuture<Void> written;
+        for (int stripe : stripes) {
+            stockLocks[stripe].lock();
+        }
+        try {
+            List<Book> affected = new ArrayList<>();
+            for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+                Book book = workingBook(delta.getKey());
+                if (book.getStockQuantity() + delta.getValue() < 0) {
+                    throw new InsufficientStockException("Insufficient stock for book: " + book.getTitle());
+                }
+                affected.add(book);
+            }
+
+            SortedBookIndex byStock = sortIndexes.get(BookSort.STOCK);
+            List<String> records = new ArrayList<>(affected.size());
+            for (Book book : affected) {
+                book.setStockQuantity(book.getStockQuantity() + deltas.get(book.getId()));
+                if (byStock != null) {
+                    byStock.put(book.getId(), BookSort.STOCK.keyOf(book));
+                }
+                records.add("STK," + book.getId() + "," + book.getStockQuantity());
+            }
+            written = appendToJournal(records);
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stockLocks[stripes[i]].unlock();
+            }
+        }
+        awaitJournal(written);
+    }
+
+    // The writers' copy rather than the published one: an import may have replaced the instance
+    // without publishing yet, and a change made to the old one would be lost on the next publish.
+    // Stable once the caller holds the book's stripe, since every replacement or removal takes it.
+    private Book workingBook(String id) throws BookNotFoundException {
+        Book book = workingBooks.get(id);
+        if (book == null) {
+            throw new BookNotFoundException("Book with ID " + id + " not found");
+        }
+        return book;
+    }
+
+    private int stripeFor(String bookId) {
+        return Math.floorMod(bookId.hashCode(), LOCK_STRIPES);
     }
 }
\ No newline at end of file
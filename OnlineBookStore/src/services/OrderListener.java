@@ -0,0 +1,10 @@
+// OrderListener.java
+package services;
+
+import models.Order;
+
+// Called under OrderService's monitor, so calls arrive one at a time in the order changes were made;
+// keep implementations short. previousStatus is null for an order seen for the first time.
+public interface OrderListener {
+    void orderChanged(Order order, String previousStatus);
+}
\ No newline at end of file
@@ -2,21 +2,50 @@
 package services;
 
 import models.Order;
+import models.Session;
 import models.CartItem;
 import exceptions.BookNotFoundException;
 import exceptions.InsufficientStockException;
 import exceptions.UserNotFoundException;
+import utils.CsvReader;
 import utils.FileHandler;
+import utils.GroupCommitWriter;
+import utils.Counter;
 import utils.IDGenerator;
+import utils.LatencyStats;
+import utils.Metrics;
+import utils.Money;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 public class OrderService {
-    private static final String ORDERS_FILE = "data/orders.csv";
-    private List<Order> orders;
+    private static final int COMMIT_BATCH_SIZE = 256;
+    private static final long COMMIT_DELAY_MILLIS = 2;
+    private static final Comparator<Order> BY_DATE = Comparator.comparing(Order::getOrderDate)
+            .thenComparing(Order::getId);
+    // End to end, from reserving stock until the order is durable in orders.csv
+    private static final LatencyStats CREATE_LATENCY = Metrics.timer("orders.create");
+    private static final LatencyStats SAVE_LATENCY = Metrics.timer("orders.save");
+    private static final Counter REJECTED = Metrics.counter("orders.rejected");
+    private final String ordersFile = FileHandler.dataFile("orders.csv");
+    private Map<String, Order> orders;
+    private Map<String, NavigableSet<Order>> ordersByUser;
+    private GroupCommitWriter ordersWriter;
+    private final List<OrderListener> listeners = new CopyOnWriteArrayList<>();
     private InventoryService inventoryService;
     private UserService userService;
 
@@ -24,62 +53,182 @@ public class OrderService {
         this.inventoryService = inventoryService;
         this.userService = userService;
         loadOrders();
+        ordersWriter = new GroupCommitWriter(ordersFile, COMMIT_BATCH_SIZE, COMMIT_DELAY_MILLIS);
     }
 
+    // orders.csv is append-only at runtime: a status change appends the whole order again and the
+    // last record for an id wins. Superseded records are dropped by rewriting the file on load.
+    // Each record carries its items with the unit price paid, so loading never consults the catalog.
     private void loadOrders() {
-        orders = new ArrayList<>();
-        List<String> lines = FileHandler.readFile(ORDERS_FILE);
-
-        for (String line : lines) {
-            String[] parts = line.split(",");
-            if (parts.length >= 5) {
-                String id = parts[0];
-                String userId = parts[1];
-                double totalAmount = Double.parseDouble(parts[2]);
-                Date orderDate = new Date(Long.parseLong(parts[3]));
-                String status = parts[4];
-
-                List<CartItem> items = new ArrayList<>();
-                if (parts.length > 5) {
-                    String[] itemParts = parts[5].split(";");
-                    for (String itemStr : itemParts) {
-                        String[] itemDetails = itemStr.split(":");
-                        if (itemDetails.length == 2) {
-                            try {
-                                String bookId = itemDetails[0];
-                                int quantity = Integer.parseInt(itemDetails[1]);
-                                double price = inventoryService.getBookById(bookId).getPrice();
-                                items.add(new CartItem(bookId, quantity, price));
-                            } catch (BookNotFoundException e) {
-                                System.out.println("Warning: Book not found for order item: " + e.getMessage());
-                            }
-                        }
+        Map<String, Order> latest = new LinkedHashMap<>();
+        int records = 0;
+        boolean legacy = false;
+
+        try (CsvReader csv = CsvReader.open(ordersFile)) {
+            while (csv.next()) {
+                if (csv.fieldCount() >= 5) {
+                    String id = csv.getString(0);
+                    String userId = csv.getString(1);
+                    long totalAmount = csv.getCents(2);
+                    Date orderDate = new Date(csv.getLong(3));
+                    String status = csv.getString(4);
+
+                    List<CartItem> items = new ArrayList<>();
+                    int separator = status.indexOf(';');
+                    if (separator >= 0) {
+                        // Older files wrote "status;bookId:quantity;..." into one field without prices
+                        readLegacyItems(status.substring(separator + 1), totalAmount, items);
+                        status = status.substring(0, separator);
+                        legacy = true;
+                    } else if (csv.fieldCount() > 5) {
+                        readItems(csv.getString(5), items);
                     }
+
+                    Order order = new Order(id, userId, items, totalAmount, orderDate, status);
+                    latest.put(id, order);
+                    records++;
                 }
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+        }
+
+        orders = latest;
+        ordersByUser = new HashMap<>();
+        for (Order order : orders.values()) {
+            indexByUser(order);
+        }
+
+        if (records > orders.size() || legacy) {
+            saveOrders();
+        }
+    }
 
-                Order order = new Order(id, userId, items, totalAmount, orderDate, status);
-                orders.add(order);
+    // Items are encoded as bookId:quantity:unitPrice triples separated by ';'
+    private static void readItems(String encoded, List<CartItem> items) {
+        int start = 0;
+        while (start < encoded.length()) {
+            int end = encoded.indexOf(';', start);
+            if (end < 0) {
+                end = encoded.length();
             }
+
+            int first = encoded.indexOf(':', start);
+            int second = first < 0 ? -1 : encoded.indexOf(':', first + 1);
+            if (first > start && second > first && second < end) {
+                String bookId = encoded.substring(start, first);
+                int quantity = Integer.parseInt(encoded, first + 1, second, 10);
+                long price = Money.parse(encoded.substring(second + 1, end));
+                items.add(new CartItem(bookId, quantity, price));
+            }
+            start = end + 1;
         }
     }
 
+    // Legacy bookId:quantity pairs never stored a price. A single-line order's price follows from
+    // its total; otherwise the current catalog price is the best that can be recovered. The file
+    // is rewritten in the new format straight after, so this runs once per legacy record.
+    private void readLegacyItems(String encoded, long totalAmount, List<CartItem> items) {
+        for (String pair : encoded.split(";")) {
+            int colon = pair.indexOf(':');
+            if (colon > 0) {
+                items.add(new CartItem(pair.substring(0, colon), Integer.parseInt(pair.substring(colon + 1)), 0));
+            }
+        }
+
+        if (items.size() == 1) {
+            CartItem item = items.get(0);
+            int quantity = item.getQuantity();
+            item.setPrice(quantity > 0 ? (totalAmount + quantity / 2) / quantity : 0);
+            return;
+        }
+        for (CartItem item : items) {
+            try {
+                item.setPrice(inventoryService.getBookById(item.getBookId()).getPrice());
+            } catch (BookNotFoundException e) {
+                System.out.println("Warning: Book not found for order item: " + e.getMessage());
+            }
+        }
+    }
+
+    private void indexByUser(Order order) {
+        ordersByUser.computeIfAbsent(order.getUserId(), k -> new TreeSet<>(BY_DATE)).add(order);
+    }
+
     private void saveOrders() {
-        List<String> lines = orders.stream()
+        long start = Metrics.start();
+        List<String> lines = orders.values().stream()
                 .map(Order::toString)
                 .collect(Collectors.toList());
-        FileHandler.writeFile(ORDERS_FILE, lines);
+        FileHandler.replaceFile(ordersFile, lines);
+        SAVE_LATENCY.stop(start);
+    }
+
+    // Rewrites orders.csv with one record per order. Every change is made, and its line queued, under
+    // this monitor, so the snapshot already holds any line still in flight to the file being replaced.
+    public synchronized void compact() {
+        saveOrders();
+    }
+
+    // Flushes the orders still being written and stops the writer thread
+    public void stop() {
+        ordersWriter.stop();
+    }
+
+    // The listener first sees every order already held, as new, then each change from here on
+    public synchronized void addListener(OrderListener listener) {
+        for (Order order : orders.values()) {
+            listener.orderChanged(order, null);
+        }
+        listeners.add(listener);
+    }
+
+    // Caller holds this service's monitor
+    private void fireChanged(Order order, String previousStatus) {
+        for (OrderListener listener : listeners) {
+            listener.orderChanged(order, previousStatus);
+        }
     }
 
     public Order createOrder(String userId, List<CartItem> items)
             throws UserNotFoundException, BookNotFoundException, InsufficientStockException {
+        return submitOrder(userId, items).join();
+    }
+
+    public Order createOrder(Session session, List<CartItem> items)
+            throws BookNotFoundException, InsufficientStockException {
+        return submitOrder(session, items).join();
+    }
+
+    // Completes once the order has been fsynced to orders.csv as part of a group commit
+    public CompletableFuture<Order> submitOrder(String userId, List<CartItem> items)
+            throws UserNotFoundException, BookNotFoundException, InsufficientStockException {
 
         // Verify user exists
         userService.getUserById(userId);
+        return placeOrder(userId, items);
+    }
 
-        // Check stock and calculate total
-        double totalAmount = 0;
+    // A validated session already identifies an existing user, so no user lookup is needed
+    public CompletableFuture<Order> submitOrder(Session session, List<CartItem> items)
+            throws BookNotFoundException, InsufficientStockException {
+        return placeOrder(session.getUserId(), items);
+    }
+
+    private CompletableFuture<Order> placeOrder(String userId, List<CartItem> items)
+            throws BookNotFoundException, InsufficientStockException {
+
+        long start = Metrics.start();
+
+        // Reserve stock for the whole cart and calculate total
+        try {
+            inventoryService.reserveStock(items);
+        } catch (BookNotFoundException | InsufficientStockException e) {
+            REJECTED.increment();
+            throw e;
+        }
+        long totalAmount = 0;
         for (CartItem item : items) {
-            inventoryService.updateStock(item.getBookId(), -item.getQuantity());
             totalAmount += item.getTotalPrice();
         }
 
@@ -93,45 +242,138 @@ public class OrderService {
                 "PENDING"
         );
 
-        orders.add(order);
-        saveOrders();
-        return order;
+        CompletableFuture<Void> written;
+        synchronized (this) {
+            orders.put(order.getId(), order);
+            indexByUser(order);
+            written = ordersWriter.append(order.toString());
+            fireChanged(order, null);
+        }
+        return written.handle((v, e) -> {
+            if (e != null) {
+                discardOrder(order);
+                throw new CompletionException(e);
+            }
+            CREATE_LATENCY.stop(start);
+            return order;
+        });
+    }
+
+    // The order never reached orders.csv, so it is taken back out and its stock returned
+    private synchronized void discardOrder(Order order) {
+        if (!orders.remove(order.getId(), order)) {
+            return;
+        }
+        NavigableSet<Order> userOrders = ordersByUser.get(order.getUserId());
+        if (userOrders != null) {
+            userOrders.remove(order);
+            if (userOrders.isEmpty()) {
+                ordersByUser.remove(order.getUserId());
+            }
+        }
+
+        try {
+            inventoryService.releaseStock(order.getItems());
+        } catch (BookNotFoundException | InsufficientStockException e) {
+            System.out.println("Warning: Could not release stock for order " + order.getId() + ": " + e.getMessage());
+        }
+        REJECTED.increment();
+
+        String previousStatus = order.getStatus();
+        order.setStatus("CANCELLED");
+        fireChanged(order, previousStatus);
     }
 
     public List<Order> getUserOrders(String userId) {
-        return orders.stream()
-                .filter(order -> order.getUserId().equals(userId))
-                .collect(Collectors.toList());
+        return getUserOrders(userId, 0, Integer.MAX_VALUE);
+    }
+
+    // Newest first; costs O(offset + limit) regardless of how many orders the store holds
+    public synchronized List<Order> getUserOrders(String userId, int offset, int limit) {
+        List<Order> page = new ArrayList<>();
+        NavigableSet<Order> userOrders = ordersByUser.get(userId);
+        if (userOrders == null) {
+            return page;
+        }
+
+        Iterator<Order> it = userOrders.descendingIterator();
+        for (int skipped = 0; skipped < offset && it.hasNext(); skipped++) {
+            it.next();
+        }
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
+    }
+
+    public List<Order> getUserOrders(Session session, int offset, int limit) {
+        return getUserOrders(session.getUserId(), offset, limit);
+    }
+
+    public int getUserOrderCount(Session session) {
+        return getUserOrderCount(session.getUserId());
+    }
+
+    public synchronized int getUserOrderCount(String userId) {
+        NavigableSet<Order> userOrders = ordersByUser.get(userId);
+        return userOrders == null ? 0 : userOrders.size();
+    }
+
+    public synchronized Order getOrderById(String orderId) {
+        return orders.get(orderId);
+    }
+
+    public synchronized List<Order> getAllOrders() {
+        return new ArrayList<>(orders.values());
     }
 
-    public List<Order> getAllOrders() {
-        return new ArrayList<>(orders);
+    // Only moves the order on if it is still in the expected status; returns whether it did
+    public boolean updateOrderStatus(String orderId, String expectedStatus, String status) {
+        CompletableFuture<Void> written;
+        synchronized (this) {
+            Order order = orders.get(orderId);
+            if (order == null || !order.getStatus().equals(expectedStatus)) {
+                return false;
+            }
+            order.setStatus(status);
+            written = ordersWriter.append(order.toString());
+            fireChanged(order, expectedStatus);
+        }
+        written.join();
+        return true;
     }
 
     public void updateOrderStatus(String orderId, String status) {
-        orders.stream()
-                .filter(order -> order.getId().equals(orderId))
-                .findFirst()
-                .ifPresent(order -> {
-                    order.setStatus(status);
-                    saveOrders();
-                });
+        CompletableFuture<Void> written;
+        synchronized (this) {
+            Order order = orders.get(orderId);
+            if (order == null) {
+                return;
+            }
+            String previousStatus = order.getStatus();
+            order.setStatus(status);
+            written = ordersWriter.append(order.toString());
+            fireChanged(order, previousStatus);
+        }
+        written.join();
     }
 
     public void cancelOrder(String orderId) throws BookNotFoundException, InsufficientStockException {
-        Order order = orders.stream()
-                .filter(o -> o.getId().equals(orderId))
-                .findFirst()
-                .orElse(null);
+        CompletableFuture<Void> written;
+        synchronized (this) {
+            Order order = orders.get(orderId);
+            if (order == null || order.getStatus().equals("CANCELLED")) {
+                return;
+            }
 
-        if (order != null && !order.getStatus().equals("CANCELLED")) {
             // Restore stock
-            for (CartItem item : order.getItems()) {
-                inventoryService.updateStock(item.getBookId(), item.getQuantity());
-            }
+            inventoryService.releaseStock(order.getItems());
 
+            String previousStatus = order.getStatus();
             order.setStatus("CANCELLED");
-            saveOrders();
+            written = ordersWriter.append(order.toString());
+            fireChanged(order, previousStatus);
         }
+        written.join();
     }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+// PaymentGateway.java
+package services;
+
+import java.util.concurrent.CompletableFuture;
+
+// A card/wallet processor. charge() must not block: it starts the request and returns a future that
+// completes with the gateway's transaction reference, or exceptionally - with PaymentDeclinedException
+// when the charge was refused (final), or anything else for a transient failure that may be retried.
+// A retry reuses the idempotency key, and the gateway must answer it with the original outcome
+// rather than charging again.
+public interface PaymentGateway {
+    CompletableFuture<String> charge(String idempotencyKey, String orderId, long amount, String paymentMethod);
+}
\ No newline at end of file
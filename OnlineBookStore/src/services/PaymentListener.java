@@ -0,0 +1,9 @@
+// PaymentListener.java
+package services;
+
+import models.Payment;
+
+// Called while PaymentService holds its payments lock; previousStatus is null for a new payment
+public interface PaymentListener {
+    void paymentChanged(Payment payment, String previousStatus);
+}
\ No newline at end of file
@@ -1,75 +1,439 @@
 // PaymentService.java
 package services;
 
-import models.Payment;
 import models.Order;
+import models.Payment;
+import exceptions.BookNotFoundException;
+import exceptions.DuplicatePaymentException;
+import exceptions.InsufficientStockException;
+import exceptions.PaymentDeclinedException;
+import utils.Counter;
+import utils.CsvReader;
 import utils.FileHandler;
+import utils.GroupCommitWriter;
 import utils.IDGenerator;
+import utils.LatencyStats;
+import utils.Metrics;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class PaymentService {
-    private static final String PAYMENTS_FILE = "data/payments.csv";
+    private static final int COMMIT_BATCH_SIZE = 256;
+    private static final long COMMIT_DELAY_MILLIS = 2;
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("bookstore.payments.concurrency", 64);
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+    private static final long GATEWAY_TIMEOUT_MILLIS = Long.getLong("bookstore.gateway.timeout.ms", 5_000);
+    // From submission until the final status is durable, across every retry
+    private static final LatencyStats PROCESS_LATENCY = Metrics.timer("payments.process");
+    private static final LatencyStats GATEWAY_LATENCY = Metrics.timer("payments.gateway");
+    private static final Counter COMPLETED = Metrics.counter("payments.completed");
+    private static final Counter FAILED = Metrics.counter("payments.failed");
+    private static final Counter RETRIES = Metrics.counter("payments.retries");
+    private static final Counter DUPLICATES = Metrics.counter("payments.duplicatesRejected");
+    private static final long IDEMPOTENCY_TTL_MILLIS =
+            TimeUnit.MINUTES.toMillis(Long.getLong("bookstore.payments.idempotency.minutes", 60));
+    private static final LatencyStats SAVE_LATENCY = Metrics.timer("payments.save");
+    private final String paymentsFile = FileHandler.dataFile("payments.csv");
     private List<Payment> payments;
-    private OrderService orderService;
+    // Guarded by the payments lock, like the list itself
+    private Map<String, List<Payment>> paymentsByOrder;
+    // Idempotency key -> the payment it created (or a claim made ahead of the order), until the TTL runs out
+    private final Map<String, RecentKey> recentKeys = new ConcurrentHashMap<>();
+    private GroupCommitWriter paymentsWriter;
+    private final List<PaymentListener> listeners = new CopyOnWriteArrayList<>();
+    // Set once orders have loaded; payments.csv itself is parsed without it
+    private volatile OrderService orderService;
+    private final PaymentGateway gateway;
+    private final Map<String, Charge> pending = new ConcurrentHashMap<>();
+    private final Queue<Charge> waiting = new ConcurrentLinkedQueue<>();
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+    // Gateway responses are handled here rather than on the gateway's own threads
+    private final ExecutorService settler = Executors.newFixedThreadPool(4, daemon("payment-settler"));
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemon("payment-scheduler"));
 
     public PaymentService(OrderService orderService) {
-        this.orderService = orderService;
+        this(orderService, new SimulatedPaymentGateway());
+    }
+
+    public PaymentService(OrderService orderService, PaymentGateway gateway) {
+        this(gateway);
+        attachOrderService(orderService);
+    }
+
+    // Loads payments.csv only; nothing can be submitted or settled until attachOrderService is called
+    public PaymentService(PaymentGateway gateway) {
+        this.gateway = gateway;
         loadPayments();
+        paymentsWriter = new GroupCommitWriter(paymentsFile, COMMIT_BATCH_SIZE, COMMIT_DELAY_MILLIS);
+        long sweepMillis = Math.max(1_000, Math.min(IDEMPOTENCY_TTL_MILLIS, TimeUnit.MINUTES.toMillis(1)));
+        scheduler.scheduleWithFixedDelay(this::evictExpiredKeys, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Settlement updates orders, so payments left PENDING by a restart are only resumed from here
+    public void attachOrderService(OrderService orderService) {
+        if (this.orderService != null) {
+            throw new IllegalStateException("Order service already attached");
+        }
+        this.orderService = orderService;
+        resumePending();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Payments still PENDING were cut off by a restart; the idempotency key makes resending them safe
+    private void resumePending() {
+        for (Payment payment : getAllPayments()) {
+            if (payment.getStatus().equals("PENDING")) {
+                dispatch(track(payment));
+            }
+        }
     }
 
+    // Like orders.csv, payments.csv is append-only at runtime and the last record for an id wins
     private void loadPayments() {
-        payments = new ArrayList<>();
-        List<String> lines = FileHandler.readFile(PAYMENTS_FILE);
-
-        for (String line : lines) {
-            String[] parts = line.split(",");
-            if (parts.length == 6) {
-                Payment payment = new Payment(
-                        parts[0], parts[1], Double.parseDouble(parts[2]),
-                        new Date(Long.parseLong(parts[3])), parts[4], parts[5]
-                );
-                payments.add(payment);
+        Map<String, Payment> latest = new LinkedHashMap<>();
+        int records = 0;
+
+        try (CsvReader csv = CsvReader.open(paymentsFile)) {
+            while (csv.next()) {
+                if (csv.fieldCount() == 6) {
+                    Payment payment = new Payment(
+                            csv.getString(0), csv.getString(1), csv.getCents(2),
+                            new Date(csv.getLong(3)), csv.getString(4), csv.getString(5)
+                    );
+                    latest.put(payment.getId(), payment);
+                    records++;
+                }
             }
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+        }
+
+        // Synchronized: payments are taken concurrently once the HTTP front end is serving
+        payments = Collections.synchronizedList(new ArrayList<>(latest.values()));
+        paymentsByOrder = new HashMap<>();
+        for (Payment payment : payments) {
+            paymentsByOrder.computeIfAbsent(payment.getOrderId(), k -> new ArrayList<>(1)).add(payment);
+        }
+        if (records > payments.size()) {
+            savePayments();
         }
     }
 
     private void savePayments() {
-        List<String> lines = payments.stream()
+        long start = Metrics.start();
+        List<String> lines = getAllPayments().stream()
                 .map(Payment::toString)
                 .collect(Collectors.toList());
-        FileHandler.writeFile(PAYMENTS_FILE, lines);
+        FileHandler.replaceFile(paymentsFile, lines);
+        SAVE_LATENCY.stop(start);
+    }
+
+    // Rewrites payments.csv with one record per payment. A payment's state always changes under the
+    // payments lock before its line is queued, so the snapshot covers any line still in flight.
+    public void compact() {
+        synchronized (payments) {
+            savePayments();
+        }
     }
 
-    public Payment processPayment(String orderId, double amount, String paymentMethod) {
+    // Stops taking gateway responses and retries, then flushes payments.csv and stops its writer.
+    // Payments still PENDING stay so in the file and are resumed on the next start.
+    public void stop() {
+        scheduler.shutdownNow();
+        settler.shutdown();
+        try {
+            settler.awaitTermination(GATEWAY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        paymentsWriter.stop();
+    }
+
+    // The listener first sees every payment already held, as new, then each payment from here on
+    public void addListener(PaymentListener listener) {
+        synchronized (payments) {
+            for (Payment payment : payments) {
+                listener.paymentChanged(payment, null);
+            }
+            listeners.add(listener);
+        }
+    }
+
+    // Blocks until the gateway has answered; checkout paths use submitPayment instead
+    public Payment processPayment(String orderId, long amount, String paymentMethod)
+            throws DuplicatePaymentException {
+        return awaitSettlement(submitPayment(orderId, amount, paymentMethod)).join();
+    }
+
+    public Payment submitPayment(String orderId, long amount, String paymentMethod)
+            throws DuplicatePaymentException {
+        return submitPayment(orderId, amount, paymentMethod, null);
+    }
+
+    // Records the payment as PENDING and hands it to the gateway pipeline without waiting for it.
+    // When the gateway answers, the payment becomes COMPLETED and its order PROCESSING, or FAILED
+    // and its order is cancelled, which returns the stock; a declined order is not paid again.
+    // Only a PENDING order can be paid, and only for exactly its total.
+    // A repeat of the idempotency key (the order id when none is given) within the TTL, or an order
+    // that already has a pending or completed payment, is rejected before anything is stored.
+    public Payment submitPayment(String orderId, long amount, String paymentMethod, String idempotencyKey)
+            throws DuplicatePaymentException {
+        if (orderService == null) {
+            throw new IllegalStateException("Payments are not accepted until orders have loaded");
+        }
+        String key = idempotencyKey == null ? orderId : idempotencyKey;
         Payment payment = new Payment(
                 IDGenerator.generatePaymentID(),
                 orderId,
                 amount,
                 new Date(),
                 paymentMethod,
-                "COMPLETED"
+                "PENDING"
         );
 
-        payments.add(payment);
-        savePayments();
-
-        // Update order status
-        orderService.updateOrderStatus(orderId, "PROCESSING");
+        // Cheap first check, without the payments lock: a double-submitted request hits it here.
+        // A key claimed ahead of the order is taken over, keeping the expiry it was claimed with.
+        long now = System.currentTimeMillis();
+        RecentKey claim = recentKeys.compute(key, (k, current) -> {
+            if (current == null || current.expiresAt <= now) {
+                return new RecentKey(payment.getId(), now + IDEMPOTENCY_TTL_MILLIS);
+            }
+            return current.paymentId == null ? new RecentKey(payment.getId(), current.expiresAt) : current;
+        });
+        if (!payment.getId().equals(claim.paymentId)) {
+            DUPLICATES.increment();
+            throw new DuplicatePaymentException("Payment " + claim.paymentId + " was already submitted for this request");
+        }
 
+        synchronized (payments) {
+            Payment existing = livePayment(orderId);
+            if (existing != null) {
+                recentKeys.remove(key, claim);
+                DUPLICATES.increment();
+                throw new DuplicatePaymentException("Order " + orderId + " already has payment " + existing.getId());
+            }
+            // Safe under the payments lock: OrderService never calls back into this service
+            Order order = orderService.getOrderById(orderId);
+            if (order == null || !order.getStatus().equals("PENDING")) {
+                recentKeys.remove(key, claim);
+                throw new IllegalArgumentException("Order " + orderId + " is not awaiting payment");
+            }
+            if (amount != order.getTotalAmount()) {
+                recentKeys.remove(key, claim);
+                throw new IllegalArgumentException("Payment amount does not match the total of order " + orderId);
+            }
+            payments.add(payment);
+            paymentsByOrder.computeIfAbsent(orderId, k -> new ArrayList<>(1)).add(payment);
+            for (PaymentListener listener : listeners) {
+                listener.paymentChanged(payment, null);
+            }
+        }
+        paymentsWriter.append(payment.toString());
+        dispatch(track(payment));
         return payment;
     }
 
+    // Reserves a key before the order it will pay for is created, so a repeated request is turned
+    // away before any stock is reserved or anything is written. submitPayment with the same key
+    // takes the claim over; if no order comes of it, drop it with releaseIdempotencyKey.
+    public void claimIdempotencyKey(String key) throws DuplicatePaymentException {
+        claimIdempotencyKey(key, IDEMPOTENCY_TTL_MILLIS);
+    }
+
+    public void claimIdempotencyKey(String key, long ttlMillis) throws DuplicatePaymentException {
+        long now = System.currentTimeMillis();
+        RecentKey claim = new RecentKey(null, now + ttlMillis);
+        RecentKey holder = recentKeys.merge(key, claim, (current, fresh) -> current.expiresAt > now ? current : fresh);
+        if (holder != claim) {
+            DUPLICATES.increment();
+            throw new DuplicatePaymentException(holder.paymentId == null
+                    ? "This request is already being processed"
+                    : "Payment " + holder.paymentId + " was already submitted for this request");
+        }
+    }
+
+    // Only drops a claim no payment has taken over yet
+    public void releaseIdempotencyKey(String key) {
+        recentKeys.computeIfPresent(key, (k, recent) -> recent.paymentId == null ? null : recent);
+    }
+
+    // Caller holds the payments lock
+    private Payment livePayment(String orderId) {
+        List<Payment> forOrder = paymentsByOrder.get(orderId);
+        if (forOrder != null) {
+            for (Payment payment : forOrder) {
+                if (!payment.getStatus().equals("FAILED")) {
+                    return payment;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void evictExpiredKeys() {
+        long now = System.currentTimeMillis();
+        recentKeys.values().removeIf(recent -> recent.expiresAt <= now);
+    }
+
+    // Completes once the payment is settled and its final status is durable in payments.csv
+    public CompletableFuture<Payment> awaitSettlement(Payment payment) {
+        Charge charge = pending.get(payment.getId());
+        return charge == null ? CompletableFuture.completedFuture(payment) : charge.settled;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private Charge track(Payment payment) {
+        Charge charge = new Charge(payment);
+        pending.put(payment.getId(), charge);
+        return charge;
+    }
+
+    // At most MAX_IN_FLIGHT charges are with the gateway at once; the rest wait their turn here.
+    // Called again whenever a permit is released, so a queued charge is never stranded.
+    private void dispatch(Charge charge) {
+        waiting.add(charge);
+        drain();
+    }
+
+    private void drain() {
+        while (!waiting.isEmpty() && inFlight.tryAcquire()) {
+            Charge next = waiting.poll();
+            if (next == null) {
+                inFlight.release();
+            } else {
+                attempt(next);
+            }
+        }
+    }
+
+    // The payment id is the idempotency key, so a retry can never charge twice
+    private void attempt(Charge charge) {
+        Payment payment = charge.payment;
+        charge.attempts++;
+        long start = Metrics.start();
+        CompletableFuture<String> response;
+        try {
+            response = gateway.charge(payment.getId(), payment.getOrderId(), payment.getAmount(), payment.getPaymentMethod())
+                    .orTimeout(GATEWAY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+
+        response.whenCompleteAsync((reference, error) -> {
+            GATEWAY_LATENCY.stop(start);
+            inFlight.release();
+            drain();
+
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause == null) {
+                settle(charge, "COMPLETED");
+            } else if (cause instanceof PaymentDeclinedException || charge.attempts >= MAX_ATTEMPTS) {
+                settle(charge, "FAILED");
+            } else {
+                RETRIES.increment();
+                long backoff = RETRY_BACKOFF_MILLIS << (charge.attempts - 1);
+                scheduler.schedule(() -> dispatch(charge), backoff, TimeUnit.MILLISECONDS);
+            }
+        }, settler);
+    }
+
+    private void settle(Charge charge, String status) {
+        Payment payment = charge.payment;
+        CompletableFuture<Void> written;
+        synchronized (payments) {
+            String previousStatus = payment.getStatus();
+            payment.setStatus(status);
+            written = paymentsWriter.append(payment.toString());
+            for (PaymentListener listener : listeners) {
+                listener.paymentChanged(payment, previousStatus);
+            }
+        }
+
+        if (status.equals("COMPLETED")) {
+            COMPLETED.increment();
+            if (!orderService.updateOrderStatus(payment.getOrderId(), "PENDING", "PROCESSING")) {
+                System.out.println("Warning: payment " + payment.getId() + " completed for order "
+                        + payment.getOrderId() + " that is no longer pending");
+            }
+        } else {
+            FAILED.increment();
+            try {
+                orderService.cancelOrder(payment.getOrderId());
+            } catch (BookNotFoundException | InsufficientStockException e) {
+                System.out.println("Error cancelling order: " + e.getMessage());
+            }
+        }
+
+        written.whenComplete((v, error) -> {
+            PROCESS_LATENCY.stop(charge.start);
+            pending.remove(payment.getId());
+            charge.settled.complete(payment);
+        });
+    }
+
+    private static final class Charge {
+        final Payment payment;
+        final CompletableFuture<Payment> settled = new CompletableFuture<>();
+        final long start = Metrics.start();
+        // Only one attempt is ever outstanding, and each hands over through a queue or future
+        int attempts;
+
+        Charge(Payment payment) {
+            this.payment = payment;
+        }
+    }
+
+    private static final class RecentKey {
+        final String paymentId; // null while claimed ahead of its order
+        final long expiresAt;
+
+        RecentKey(String paymentId, long expiresAt) {
+            this.paymentId = paymentId;
+            this.expiresAt = expiresAt;
+        }
+    }
+
     public List<Payment> getPaymentsByOrder(String orderId) {
-        return payments.stream()
-                .filter(payment -> payment.getOrderId().equals(orderId))
-                .collect(Collectors.toList());
+        synchronized (payments) {
+            List<Payment> forOrder = paymentsByOrder.get(orderId);
+            return forOrder == null ? new ArrayList<>() : new ArrayList<>(forOrder);
+        }
     }
 
     public List<Payment> getAllPayments() {
-        return new ArrayList<>(payments);
+        synchronized (payments) {
+            return new ArrayList<>(payments);
+        }
     }
 }
\ No newline at end of file
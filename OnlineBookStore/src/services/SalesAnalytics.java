@@ -0,0 +1,196 @@
+// SalesAnalytics.java
+package services;
+
+import models.Book;
+import models.CartItem;
+import models.Order;
+import models.Payment;
+import models.SalesTotal;
+import utils.LongLongMap;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Sales aggregates kept up to date as orders and payments change, so dashboards never scan the
+// order history. Cancelled orders do not count; an order that is cancelled is taken back out.
+// Payments count once COMPLETED. Books are interned to an int slot on first sale and their
+// totals live in primitive arrays; a book keeps the genre it had when it first sold.
+public class SalesAnalytics implements OrderListener, PaymentListener {
+    private static final String UNKNOWN_GENRE = "Unknown";
+
+    private final InventoryService inventoryService;
+    private final ZoneId zone;
+
+    private long revenue;
+    private long units;
+    private long orderCount;
+    private final LongLongMap revenueByDay = new LongLongMap(512);
+    private final LongLongMap ordersByDay = new LongLongMap(512);
+
+    private final Map<String, Integer> bookSlots = new HashMap<>();
+    private String[] bookIds = new String[64];
+    private String[] bookGenres = new String[64];
+    private long[] bookUnits = new long[64];
+    private long[] bookRevenue = new long[64];
+    // Book slots ordered best-selling first; a slot is taken out before its units change
+    private final TreeSet<Integer> bestsellers = new TreeSet<>(
+            Comparator.<Integer>comparingLong(slot -> -bookUnits[slot]).thenComparing(slot -> bookIds[slot]));
+
+    private final Map<String, long[]> genreTotals = new HashMap<>();
+    private final Map<String, long[]> methodTotals = new HashMap<>();
+
+    public SalesAnalytics(InventoryService inventoryService, OrderService orderService, PaymentService paymentService) {
+        this(inventoryService, orderService, paymentService, ZoneId.systemDefault());
+    }
+
+    public SalesAnalytics(InventoryService inventoryService, OrderService orderService,
+                          PaymentService paymentService, ZoneId zone) {
+        this.inventoryService = inventoryService;
+        this.zone = zone;
+        // Both replay what they already hold before streaming changes, so nothing is missed or counted twice
+        orderService.addListener(this);
+        paymentService.addListener(this);
+    }
+
+    @Override
+    public synchronized void orderChanged(Order order, String previousStatus) {
+        int sign = counts(order.getStatus()) - (previousStatus == null ? 0 : counts(previousStatus));
+        if (sign == 0) {
+            return;
+        }
+
+        long day = day(order.getOrderDate().getTime());
+        revenue += sign * order.getTotalAmount();
+        orderCount += sign;
+        revenueByDay.add(day, sign * order.getTotalAmount());
+        ordersByDay.add(day, sign);
+
+        for (CartItem item : order.getItems()) {
+            int slot = slotOf(item.getBookId());
+            long quantity = sign * item.getQuantity();
+            long amount = sign * item.getTotalPrice();
+
+            bestsellers.remove(slot);
+            bookUnits[slot] += quantity;
+            bookRevenue[slot] += amount;
+            if (bookUnits[slot] > 0) {
+                bestsellers.add(slot);
+            }
+
+            long[] genre = genreTotals.computeIfAbsent(bookGenres[slot], k -> new long[2]);
+            genre[0] += quantity;
+            genre[1] += amount;
+            units += quantity;
+        }
+    }
+
+    @Override
+    public synchronized void paymentChanged(Payment payment, String previousStatus) {
+        int sign = (payment.getStatus().equals("COMPLETED") ? 1 : 0)
+                - ("COMPLETED".equals(previousStatus) ? 1 : 0);
+        if (sign != 0) {
+            long[] method = methodTotals.computeIfAbsent(payment.getPaymentMethod(), k -> new long[2]);
+            method[0] += sign;
+            method[1] += sign * payment.getAmount();
+        }
+    }
+
+    private static int counts(String status) {
+        return status.equals("CANCELLED") ? 0 : 1;
+    }
+
+    private long day(long millis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone).toEpochDay();
+    }
+
+    private int slotOf(String bookId) {
+        Integer slot = bookSlots.get(bookId);
+        if (slot != null) {
+            return slot;
+        }
+
+        int next = bookSlots.size();
+        if (next == bookIds.length) {
+            int capacity = next * 2;
+            bookIds = Arrays.copyOf(bookIds, capacity);
+            bookGenres = Arrays.copyOf(bookGenres, capacity);
+            bookUnits = Arrays.copyOf(bookUnits, capacity);
+            bookRevenue = Arrays.copyOf(bookRevenue, capacity);
+        }
+        Book book = inventoryService.getSnapshot().getBook(bookId);
+        bookIds[next] = bookId;
+        bookGenres[next] = book == null ? UNKNOWN_GENRE : book.getGenre();
+        bookSlots.put(bookId, next);
+        return next;
+    }
+
+    public synchronized long getTotalRevenue() {
+        return revenue;
+    }
+
+    public synchronized long getUnitsSold() {
+        return units;
+    }
+
+    public synchronized long getOrderCount() {
+        return orderCount;
+    }
+
+    public synchronized long getRevenue(LocalDate day) {
+        return revenueByDay.get(day.toEpochDay());
+    }
+
+    public synchronized long getOrderCount(LocalDate day) {
+        return ordersByDay.get(day.toEpochDay());
+    }
+
+    // One entry per day from..to inclusive, zero days included; the key is the ISO date
+    public synchronized List<SalesTotal> getDailySales(LocalDate from, LocalDate to) {
+        List<SalesTotal> days = new ArrayList<>();
+        for (long day = from.toEpochDay(); day <= to.toEpochDay(); day++) {
+            days.add(new SalesTotal(LocalDate.ofEpochDay(day).toString(), ordersByDay.get(day), revenueByDay.get(day)));
+        }
+        return days;
+    }
+
+    public synchronized SalesTotal getBookSales(String bookId) {
+        Integer slot = bookSlots.get(bookId);
+        return slot == null ? new SalesTotal(bookId, 0, 0) : new SalesTotal(bookId, bookUnits[slot], bookRevenue[slot]);
+    }
+
+    // Costs O(n), independent of how many books have ever sold
+    public synchronized List<SalesTotal> getBestsellers(int n) {
+        List<SalesTotal> top = new ArrayList<>(Math.min(n, bestsellers.size()));
+        Iterator<Integer> it = bestsellers.iterator();
+        while (top.size() < n && it.hasNext()) {
+            int slot = it.next();
+            top.add(new SalesTotal(bookIds[slot], bookUnits[slot], bookRevenue[slot]));
+        }
+        return top;
+    }
+
+    public synchronized List<SalesTotal> getSalesByGenre() {
+        return totals(genreTotals);
+    }
+
+    // Units here are the number of completed payments
+    public synchronized List<SalesTotal> getPaymentsByMethod() {
+        return totals(methodTotals);
+    }
+
+    private static List<SalesTotal> totals(Map<String, long[]> source) {
+        List<SalesTotal> totals = new ArrayList<>();
+        new TreeMap<>(source).forEach((key, value) -> totals.add(new SalesTotal(key, value[0], value[1])));
+        return totals;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,162 @@
+// SearchIndex.java
+package services;
+
+import models.Book;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class SearchIndex {
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int GENRE_WEIGHT = 1;
+
+    // term -> (book id -> field weight); sorted so prefix lookups are a subMap range
+    private final TreeMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> termsByBook = new HashMap<>();
+    // Searches share the read lock; catalog edits are rare and take the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void add(Book book) {
+        lock.writeLock().lock();
+        try {
+            index(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String bookId) {
+        lock.writeLock().lock();
+        try {
+            unindex(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<String> search(String query, int limit) {
+        lock.readLock().lock();
+        try {
+            return find(query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(Book book) {
+        unindex(book.getId());
+
+        Map<String, Integer> weights = new HashMap<>();
+        addTerms(weights, book.getTitle(), TITLE_WEIGHT);
+        addTerms(weights, book.getAuthor(), AUTHOR_WEIGHT);
+        addTerms(weights, book.getGenre(), GENRE_WEIGHT);
+
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(book.getId(), entry.getValue());
+        }
+        termsByBook.put(book.getId(), weights.keySet());
+    }
+
+    private void unindex(String bookId) {
+        Set<String> terms = termsByBook.remove(bookId);
+        if (terms == null) {
+            return;
+        }
+
+        for (String term : terms) {
+            Map<String, Integer> posting = postings.get(term);
+            posting.remove(bookId);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private List<String> find(String query, int limit) {
+        Map<String, Integer> scores = null;
+
+        for (String token : tokenize(query)) {
+            Map<String, Integer> matches = match(token);
+            if (scores == null) {
+                scores = matches;
+            } else {
+                scores.keySet().retainAll(matches.keySet());
+                scores.replaceAll((id, score) -> score + matches.get(id));
+            }
+
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+
+        if (scores == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        Comparator<Map.Entry<String, Integer>> ranking = Map.Entry.<String, Integer>comparingByValue()
+                .thenComparing(Map.Entry.<String, Integer>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<String, Integer>> top = new PriorityQueue<>(ranking);
+        for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<String> ids = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ids.add(top.poll().getKey());
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    // Every query token is treated as a prefix for type-ahead; exact term hits score double
+    private Map<String, Integer> match(String token) {
+        Map<String, Integer> matches = new HashMap<>();
+
+        for (Map.Entry<String, Map<String, Integer>> entry :
+                postings.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+            int multiplier = entry.getKey().equals(token) ? 2 : 1;
+            for (Map.Entry<String, Integer> posting : entry.getValue().entrySet()) {
+                matches.merge(posting.getKey(), posting.getValue() * multiplier, Math::max);
+            }
+        }
+        return matches;
+    }
+
+    private static void addTerms(Map<String, Integer> weights, String text, int weight) {
+        for (String term : tokenize(text)) {
+            weights.merge(term, weight, Math::max);
+        }
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+}
\ No newline at end of file
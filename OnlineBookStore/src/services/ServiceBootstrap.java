@@ -0,0 +1,72 @@
+// ServiceBootstrap.java
+package services;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+// Loads the stores concurrently, each as soon as the services it is constructed from are ready:
+// users, books and payments in parallel, then orders once books and users are in. Payments only
+// need the OrderService to settle, so it is attached next, resuming any PENDING payments. Sessions
+// and carts hold no persistent state and are created after that, and sales analytics, seeded from
+// the loaded orders and payments, come last.
+public class ServiceBootstrap {
+    private final Map<String, Long> loadTimesMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+    private InventoryService inventoryService;
+    private UserService userService;
+    private OrderService orderService;
+    private PaymentService paymentService;
+    private SessionService sessionService;
+    private CartService cartService;
+    private SalesAnalytics salesAnalytics;
+
+    public void start() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            CompletableFuture<InventoryService> inventory =
+                    CompletableFuture.supplyAsync(() -> timed("books", InventoryService::new), executor);
+            CompletableFuture<UserService> users =
+                    CompletableFuture.supplyAsync(() -> timed("users", UserService::new), executor);
+            CompletableFuture<PaymentService> payments = CompletableFuture.supplyAsync(
+                    () -> timed("payments", () -> new PaymentService(new SimulatedPaymentGateway())), executor);
+            CompletableFuture<OrderService> orders = inventory.thenCombineAsync(users,
+                    (i, u) -> timed("orders", () -> new OrderService(i, u)), executor);
+
+            inventoryService = inventory.join();
+            userService = users.join();
+            orderService = orders.join();
+            paymentService = payments.join();
+            paymentService.attachOrderService(orderService);
+            sessionService = new SessionService(userService);
+            cartService = new CartService(inventoryService);
+            salesAnalytics = new SalesAnalytics(inventoryService, orderService, paymentService);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private <T> T timed(String store, Supplier<T> loader) {
+        long start = System.nanoTime();
+        T service = loader.get();
+        loadTimesMillis.put(store, (System.nanoTime() - start) / 1_000_000);
+        return service;
+    }
+
+    public Map<String, Long> getLoadTimesMillis() {
+        synchronized (loadTimesMillis) {
+            return new LinkedHashMap<>(loadTimesMillis);
+        }
+    }
+
+    public InventoryService getInventoryService() { return inventoryService; }
+    public UserService getUserService() { return userService; }
+    public OrderService getOrderService() { return orderService; }
+    public PaymentService getPaymentService() { return paymentService; }
+    public SessionService getSessionService() { return sessionService; }
+    public CartService getCartService() { return cartService; }
+    public SalesAnalytics getSalesAnalytics() { return salesAnalytics; }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+// SessionService.java
+package services;
+
+import models.Session;
+import models.User;
+import exceptions.SessionExpiredException;
+import exceptions.UserNotFoundException;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Issues opaque tokens at login and resolves them back to the logged-in user with a single map lookup.
+// Sessions idle for longer than the timeout are rejected on access and swept out in the background.
+public class SessionService {
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS =
+            TimeUnit.MINUTES.toMillis(Long.getLong("bookstore.session.idle.minutes", 30));
+    private static final int TOKEN_BYTES = 32;
+
+    private final UserService userService;
+    private final long idleTimeoutMillis;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SessionService(UserService userService) {
+        this(userService, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    public SessionService(UserService userService, long idleTimeoutMillis) {
+        this.userService = userService;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        long sweepMillis = Math.max(1_000, Math.min(idleTimeoutMillis, TimeUnit.MINUTES.toMillis(1)));
+        sweeper.scheduleWithFixedDelay(this::evictIdle, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Session login(String username, String password) throws UserNotFoundException {
+        User user = userService.authenticate(username, password);
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        Session session = new Session(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes),
+                user, System.currentTimeMillis());
+        sessions.put(session.getToken(), session);
+        return session;
+    }
+
+    public Session validate(String token) throws SessionExpiredException {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            throw new SessionExpiredException("Session not found, please log in again");
+        }
+
+        long now = System.currentTimeMillis();
+        if (isIdle(session, now)) {
+            sessions.remove(token, session);
+            throw new SessionExpiredException("Session expired, please log in again");
+        }
+        session.touch(now);
+        return session;
+    }
+
+    public void logout(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> isIdle(session, now));
+    }
+
+    private boolean isIdle(Session session, long now) {
+        return now - session.getLastAccessedAt() > idleTimeoutMillis;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+// SimulatedPaymentGateway.java
+package services;
+
+import exceptions.PaymentDeclinedException;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// In-process stand-in for a real gateway. Each charge answers after the configured latency (+/- 50%
+// jitter) from a timer thread, so no thread waits on it. A share of calls fail transiently - half of
+// those after the charge went through, as when a response is lost - and a share are declined.
+// Outcomes are remembered per idempotency key, so retrying a charge that did go through returns the
+// original reference instead of charging twice. Defaults come from -Dbookstore.gateway.latency.ms
+// (100), -Dbookstore.gateway.failureRate (0.02) and -Dbookstore.gateway.declineRate (0.01).
+public class SimulatedPaymentGateway implements PaymentGateway {
+    public static final long DEFAULT_LATENCY_MILLIS = Long.getLong("bookstore.gateway.latency.ms", 100);
+    public static final double DEFAULT_FAILURE_RATE = rate("bookstore.gateway.failureRate", 0.02);
+    public static final double DEFAULT_DECLINE_RATE = rate("bookstore.gateway.declineRate", 0.01);
+
+    private final long latencyMillis;
+    private final double failureRate;
+    private final double declineRate;
+    private final Map<String, String> charged = new ConcurrentHashMap<>();
+    private final Map<String, String> declined = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "simulated-gateway");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SimulatedPaymentGateway() {
+        this(DEFAULT_LATENCY_MILLIS, DEFAULT_FAILURE_RATE, DEFAULT_DECLINE_RATE);
+    }
+
+    public SimulatedPaymentGateway(long latencyMillis, double failureRate, double declineRate) {
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+        this.declineRate = declineRate;
+    }
+
+    private static double rate(String property, double fallback) {
+        String value = System.getProperty(property);
+        return value == null ? fallback : Double.parseDouble(value);
+    }
+
+    // Charges still waiting on the timer never answer
+    public void stop() {
+        timer.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<String> charge(String idempotencyKey, String orderId, long amount, String paymentMethod) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMillis == 0 ? 0 : latencyMillis / 2 + random.nextLong(latencyMillis + 1);
+        double roll = random.nextDouble();
+
+        Runnable respond = () -> {
+            String reference = charged.get(idempotencyKey);
+            String reason = declined.get(idempotencyKey);
+            if (reference != null) {
+                result.complete(reference);
+            } else if (reason != null) {
+                result.completeExceptionally(new PaymentDeclinedException(reason));
+            } else if (roll < failureRate / 2) {
+                result.completeExceptionally(new IOException("Gateway unavailable"));
+            } else if (roll < failureRate) {
+                // Charged, but the response never arrives
+                charged.put(idempotencyKey, "TX" + idempotencyKey);
+                result.completeExceptionally(new IOException("Gateway response lost"));
+            } else if (amount <= 0 || roll < failureRate + declineRate) {
+                declined.put(idempotencyKey, "Card declined");
+                result.completeExceptionally(new PaymentDeclinedException("Card declined"));
+            } else {
+                charged.put(idempotencyKey, "TX" + idempotencyKey);
+                result.complete("TX" + idempotencyKey);
+            }
+        };
+
+        if (delay == 0) {
+            respond.run();
+        } else {
+            timer.schedule(respond, delay, TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+// SortedBookIndex.java
+package services;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Book ids kept in order of one sort key, ties broken by id. Entries are immutable (key, id) pairs in
+// a concurrent skip list, so a page is a walk from the cursor - O(log n + page) - and readers never
+// lock. Changing a book's key swaps its entry; callers serialize changes to the same book.
+public class SortedBookIndex {
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>();
+    private final Map<String, Entry> entriesById = new ConcurrentHashMap<>();
+
+    void put(String id, Comparable<?> key) {
+        Entry entry = new Entry(key, id);
+        Entry previous = entriesById.put(id, entry);
+        if (previous != null) {
+            if (previous.compareTo(entry) == 0) {
+                return;
+            }
+            entries.remove(previous);
+        }
+        entries.add(entry);
+    }
+
+    void remove(String id) {
+        Entry previous = entriesById.remove(id);
+        if (previous != null) {
+            entries.remove(previous);
+        }
+    }
+
+    // Up to limit entries strictly after the given one (from the start when it is null)
+    List<Entry> page(Entry after, boolean descending, int limit) {
+        NavigableSet<Entry> view = descending ? entries.descendingSet() : entries;
+        if (after != null) {
+            view = view.tailSet(after, false);
+        }
+
+        List<Entry> page = new ArrayList<>(Math.min(limit, 64));
+        Iterator<Entry> it = view.iterator();
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
+    }
+
+    static final class Entry implements Comparable<Entry> {
+        final Comparable<?> key;
+        final String id;
+
+        Entry(Comparable<?> key, String id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compareTo(Entry other) {
+            int order = ((Comparable<Object>) key).compareTo(other.key);
+            return order != 0 ? order : id.compareTo(other.id);
+        }
+    }
+}
\ No newline at end of file
@@ -3,57 +3,233 @@ package services;
 
 import models.User;
 import exceptions.UserNotFoundException;
+import utils.Counter;
+import utils.CsvReader;
 import utils.FileHandler;
+import utils.GroupCommitWriter;
 import utils.IDGenerator;
+import utils.LatencyStats;
+import utils.Metrics;
+import utils.PasswordHasher;
 import utils.Validator;
+import utils.VerificationCache;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 public class UserService {
-    private static final String USERS_FILE = "data/users.csv";
-    private List<User> users;
+    private static final int VERIFIER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int VERIFIER_QUEUE_SIZE = 256;
+    private static final long SAVE_DELAY_MILLIS = 1_000;
+    private static final int COMMIT_BATCH_SIZE = 256;
+    private static final long COMMIT_DELAY_MILLIS = 2;
+    private static final long VERIFICATION_CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final int VERIFICATION_CACHE_SIZE = 10_000;
+    private static final LatencyStats AUTHENTICATE_LATENCY = Metrics.timer("users.authenticate");
+    private static final LatencyStats VERIFY_LATENCY = Metrics.timer("users.verifyPassword");
+    private static final LatencyStats SAVE_LATENCY = Metrics.timer("users.save");
+    private static final Counter AUTH_FAILURES = Metrics.counter("users.authFailures");
+    private static final Counter CACHE_HITS = Metrics.counter("users.verificationCacheHits");
+    private final String usersFile = FileHandler.dataFile("users.csv");
+    private Map<String, User> users;
+    private Map<String, User> usersByUsername;
+    private Map<String, User> usersByEmail;
+    // Keys each user is currently indexed under; callers may mutate a User before handing it to updateUser
+    private Map<String, String> indexedUsernames;
+    private Map<String, String> indexedEmails;
+    private GroupCommitWriter usersWriter;
+    // Hash of a random password at the current work factor, verified in place of a missing user's
+    private final Future<String> dummyHash;
+    private final PasswordHasher passwordHasher = new PasswordHasher();
+    private final VerificationCache verificationCache =
+            new VerificationCache(VERIFICATION_CACHE_TTL_MILLIS, VERIFICATION_CACHE_SIZE);
+    // Password checks and new hashes are deliberately slow, so they run on a small bounded pool that
+    // a spike of logins or sign-ups cannot grow beyond; excess attempts are rejected instead of
+    // queuing up behind checkout work
+    private final ExecutorService verifier = new ThreadPoolExecutor(
+            VERIFIER_THREADS, VERIFIER_THREADS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(VERIFIER_QUEUE_SIZE),
+            runnable -> {
+                Thread thread = new Thread(runnable, "password-verifier");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "users-saver");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public UserService() {
+        // Made on the pool rather than here, so it does not hold up startup
+        dummyHash = verifier.submit(() -> passwordHasher.hash(UUID.randomUUID().toString()));
         loadUsers();
+        usersWriter = new GroupCommitWriter(usersFile, COMMIT_BATCH_SIZE, COMMIT_DELAY_MILLIS);
     }
 
     private void loadUsers() {
-        users = new ArrayList<>();
-        List<String> lines = FileHandler.readFile(USERS_FILE);
-
-        for (String line : lines) {
-            String[] parts = line.split(",");
-            if (parts.length == 6) {
-                User user = new User(
-                        parts[0], parts[1], parts[2], parts[3],
-                        parts[4], Boolean.parseBoolean(parts[5])
-                );
-                users.add(user);
+        // Insertion-ordered so users.csv keeps its row order across rewrites
+        users = Collections.synchronizedMap(new LinkedHashMap<>());
+        usersByUsername = new ConcurrentHashMap<>();
+        usersByEmail = new ConcurrentHashMap<>();
+        indexedUsernames = new ConcurrentHashMap<>();
+        indexedEmails = new ConcurrentHashMap<>();
+
+        try (CsvReader csv = CsvReader.open(usersFile)) {
+            while (csv.next()) {
+                if (csv.fieldCount() == 6) {
+                    User user = new User(
+                            csv.getString(0), csv.getString(1), csv.getString(2), csv.getString(3),
+                            csv.getString(4), csv.getBoolean(5)
+                    );
+                    index(user);
+                }
             }
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
         }
     }
 
-    private void saveUsers() {
-        List<String> lines = users.stream()
+    private void index(User user) {
+        String username = normalize(user.getUsername());
+        String email = normalize(user.getEmail());
+
+        users.put(user.getId(), user);
+        usersByUsername.putIfAbsent(username, user);
+        usersByEmail.putIfAbsent(email, user);
+        indexedUsernames.put(user.getId(), username);
+        indexedEmails.put(user.getId(), email);
+    }
+
+    private static String normalize(String key) {
+        return key.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private synchronized void saveUsers() {
+        long start = Metrics.start();
+        List<User> snapshot;
+        synchronized (users) {
+            snapshot = new ArrayList<>(users.values());
+        }
+        List<String> lines = snapshot.stream()
                 .map(User::toString)
                 .collect(Collectors.toList());
-        FileHandler.writeFile(USERS_FILE, lines);
+        FileHandler.replaceFile(usersFile, lines);
+        SAVE_LATENCY.stop(start);
+    }
+
+    // Upgrades during a migration arrive one login at a time; they are collected and written out in
+    // one rewrite at most every SAVE_DELAY_MILLIS. An upgrade lost to a crash before then only means
+    // the old hash stays, and is upgraded again on the next login.
+    private void scheduleSave() {
+        if (saveScheduled.compareAndSet(false, true)) {
+            saver.schedule(() -> {
+                saveScheduled.set(false);
+                saveUsers();
+            }, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
     }
 
     public User authenticate(String username, String password) throws UserNotFoundException {
-        return users.stream()
-                .filter(user -> user.getUsername().equals(username) && user.getPassword().equals(password))
-                .findFirst()
-                .orElseThrow(() -> new UserNotFoundException("Invalid username or password"));
+        long start = Metrics.start();
+        try {
+            return checkCredentials(username, password);
+        } catch (UserNotFoundException e) {
+            AUTH_FAILURES.increment();
+            throw e;
+        } finally {
+            AUTHENTICATE_LATENCY.stop(start);
+        }
+    }
+
+    private User checkCredentials(String username, String password) throws UserNotFoundException {
+        User found = usersByUsername.get(normalize(username));
+        User user = found != null && users.get(found.getId()) == found ? found : null;
+        if (user != null && verificationCache.matches(user.getId(), user.getPassword(), password)) {
+            CACHE_HITS.increment();
+            return user;
+        }
+
+        // An unknown username is checked against a dummy hash, so it costs as long as a wrong password
+        // and the response time does not tell which accounts exist
+        Future<Boolean> verification;
+        try {
+            verification = verifier.submit(() -> {
+                if (user != null) {
+                    return verifyPassword(user, password);
+                }
+                passwordHasher.verify(password, dummyHash.get());
+                return false;
+            });
+        } catch (RejectedExecutionException e) {
+            throw new UserNotFoundException("Too many login attempts in progress, please try again");
+        }
+
+        try {
+            if (!verification.get()) {
+                throw new UserNotFoundException("Invalid username or password");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UserNotFoundException("Login interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password verification failed", e.getCause());
+        }
+        return user;
+    }
+
+    // Legacy plaintext rows and hashes below the current work factor are re-hashed on a successful login
+    private boolean verifyPassword(User user, String password) {
+        long start = Metrics.start();
+        String stored = user.getPassword();
+        boolean valid = passwordHasher.verify(password, stored);
+        VERIFY_LATENCY.stop(start);
+
+        if (valid && passwordHasher.needsUpgrade(stored)) {
+            String upgraded = passwordHasher.hash(password);
+            // Under the monitor so the background save sees the new hash
+            synchronized (this) {
+                user.setPassword(upgraded);
+            }
+            scheduleSave();
+        }
+        if (valid) {
+            verificationCache.put(user.getId(), user.getPassword(), password);
+        }
+        return valid;
+    }
+
+    public LatencyStats getVerificationLatency() {
+        return VERIFY_LATENCY;
     }
 
     public User getUserById(String id) throws UserNotFoundException {
-        return users.stream()
-                .filter(user -> user.getId().equals(id))
-                .findFirst()
-                .orElseThrow(() -> new UserNotFoundException("User with ID " + id + " not found"));
+        User user = users.get(id);
+        if (user == null) {
+            throw new UserNotFoundException("User with ID " + id + " not found");
+        }
+        return user;
     }
 
     public void registerUser(User user) throws IllegalArgumentException {
@@ -65,22 +241,93 @@ public class UserService {
             throw new IllegalArgumentException("Password must be at least 8 characters with uppercase, lowercase, number and special character");
         }
 
-        if (users.stream().anyMatch(u -> u.getUsername().equals(user.getUsername()))) {
+        // Checked before paying for the hash; the putIfAbsent claims below still settle any race
+        String username = normalize(user.getUsername());
+        String email = normalize(user.getEmail());
+        if (usersByUsername.containsKey(username)) {
             throw new IllegalArgumentException("Username already exists");
         }
-
-        if (users.stream().anyMatch(u -> u.getEmail().equals(user.getEmail()))) {
+        if (usersByEmail.containsKey(email)) {
             throw new IllegalArgumentException("Email already registered");
         }
 
+        // Hashed on the verifier pool, like logins, and before the user becomes visible through the indexes
+        user.setPassword(hashOnVerifier(user.getPassword()));
+
         user.setId(IDGenerator.generateID());
         user.setAdmin(false);
-        users.add(user);
-        saveUsers();
+
+        // putIfAbsent claims the username and email atomically, so concurrent sign-ups cannot both win.
+        // Logins ignore a claimed user until it is in the users map, so a claim that is rolled back
+        // never had a session.
+        if (usersByUsername.putIfAbsent(username, user) != null) {
+            throw new IllegalArgumentException("Username already exists");
+        }
+
+        if (usersByEmail.putIfAbsent(email, user) != null) {
+            usersByUsername.remove(username, user);
+            throw new IllegalArgumentException("Email already registered");
+        }
+
+        indexedUsernames.put(user.getId(), username);
+        indexedEmails.put(user.getId(), email);
+        // A new user is one more row, appended like orders; under the monitor so a concurrent
+        // rewrite of users.csv either includes the user or precedes the appended line
+        CompletableFuture<Void> written;
+        synchronized (this) {
+            users.put(user.getId(), user);
+            written = usersWriter.append(user.toString());
+        }
+        written.join();
+    }
+
+    private String hashOnVerifier(String password) {
+        Future<String> hashed;
+        try {
+            hashed = verifier.submit(() -> passwordHasher.hash(password));
+        } catch (RejectedExecutionException e) {
+            throw new IllegalArgumentException("Too many sign-ups in progress, please try again");
+        }
+
+        try {
+            return hashed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException("Registration interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
     }
 
-    public void updateUser(User updatedUser) throws UserNotFoundException {
+    public synchronized void updateUser(User updatedUser) throws UserNotFoundException {
         User user = getUserById(updatedUser.getId());
+        String oldUsername = indexedUsernames.get(user.getId());
+        String oldEmail = indexedEmails.get(user.getId());
+        String username = normalize(updatedUser.getUsername());
+        String email = normalize(updatedUser.getEmail());
+        boolean usernameChanged = !username.equals(oldUsername);
+        boolean emailChanged = !email.equals(oldEmail);
+
+        if (usernameChanged && usersByUsername.putIfAbsent(username, user) != null) {
+            throw new IllegalArgumentException("Username already exists");
+        }
+
+        if (emailChanged && usersByEmail.putIfAbsent(email, user) != null) {
+            if (usernameChanged) {
+                usersByUsername.remove(username, user);
+            }
+            throw new IllegalArgumentException("Email already registered");
+        }
+
+        if (usernameChanged) {
+            usersByUsername.remove(oldUsername, user);
+            indexedUsernames.put(user.getId(), username);
+        }
+        if (emailChanged) {
+            usersByEmail.remove(oldEmail, user);
+            indexedEmails.put(user.getId(), email);
+        }
+
         user.setUsername(updatedUser.getUsername());
         user.setEmail(updatedUser.getEmail());
         user.setAddress(updatedUser.getAddress());
@@ -0,0 +1,26 @@
+// Counter.java
+package utils;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Striped so that threads incrementing the same counter do not contend on one cache line
+public class Counter implements CounterMXBean {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(getCount());
+    }
+}
\ No newline at end of file
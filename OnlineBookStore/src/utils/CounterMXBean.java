@@ -0,0 +1,6 @@
+// CounterMXBean.java
+package utils;
+
+public interface CounterMXBean {
+    long getCount();
+}
\ No newline at end of file
@@ -0,0 +1,196 @@
+// CsvReader.java
+package utils;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Streaming RFC 4180 reader. Each call to next() unescapes one record into a reusable char buffer;
+// numeric getters parse straight from that buffer so only getString allocates.
+public class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private char[] record = new char[256];
+    // CharSequence over record for Money.parse; rewrapped whenever record grows
+    private CharBuffer recordView = CharBuffer.wrap(record);
+    private int recordLength;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public static CsvReader open(String filename) throws IOException {
+        return new CsvReader(new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8));
+    }
+
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    // Advances to the next non-blank record; returns false at end of input
+    public boolean next() throws IOException {
+        while (true) {
+            recordLength = 0;
+            fieldCount = 0;
+            int fieldStart = 0;
+            boolean quoted = false;
+            boolean sawAny = false;
+            int c;
+
+            while ((c = read()) >= 0) {
+                sawAny = true;
+                if (quoted) {
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            read();
+                            append('"');
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    endField(fieldStart);
+                    fieldStart = recordLength;
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r' && peek() == '\n') {
+                        read();
+                    }
+                    break;
+                } else {
+                    append((char) c);
+                }
+            }
+
+            if (!sawAny) {
+                return false;
+            }
+            if (fieldCount == 0 && recordLength == 0 && c != -1 && !quoted) {
+                continue;
+            }
+            endField(fieldStart);
+            return true;
+        }
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    public String getString(int field) {
+        return new String(record, fieldStarts[field], fieldEnds[field] - fieldStarts[field]);
+    }
+
+    public boolean getBoolean(int field) {
+        int start = fieldStarts[field];
+        return fieldEnds[field] - start == 4
+                && Character.toLowerCase(record[start]) == 't'
+                && Character.toLowerCase(record[start + 1]) == 'r'
+                && Character.toLowerCase(record[start + 2]) == 'u'
+                && Character.toLowerCase(record[start + 3]) == 'e';
+    }
+
+    public int getInt(int field) {
+        long value = getLong(field);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value out of int range: " + getString(field));
+        }
+        return (int) value;
+    }
+
+    public long getLong(int field) {
+        int i = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = i < end && record[i] == '-';
+        if (negative || (i < end && record[i] == '+')) {
+            i++;
+        }
+        if (i == end || end - i > 18) {
+            return Long.parseLong(getString(field));
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = record[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid number: " + getString(field));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // Amounts in cents, parsed by Money straight from the record buffer
+    public long getCents(int field) {
+        return Money.parse(recordView, fieldStarts[field], fieldEnds[field]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void endField(int start) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = recordLength;
+        fieldCount++;
+    }
+
+    private void append(char c) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, recordLength * 2);
+            recordView = CharBuffer.wrap(record);
+        }
+        record[recordLength++] = c;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        limit = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+}
\ No newline at end of file
@@ -2,39 +2,104 @@
 package utils;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 
 public class FileHandler {
+    private static final Counter ERRORS = Metrics.counter("file.errors");
+
+    // Overridable with -Dbookstore.data.dir, e.g. to point benchmarks at generated data
+    public static String dataFile(String name) {
+        return System.getProperty("bookstore.data.dir", "data") + File.separator + name;
+    }
+
+    public static boolean fileExists(String filename) {
+        return new File(filename).exists();
+    }
+
+    public static long lastModified(String filename) {
+        return new File(filename).lastModified();
+    }
+
+    // 0 for a missing file
+    public static long fileSize(String filename) {
+        return new File(filename).length();
+    }
+
+    public static void deleteFile(String filename) {
+        try {
+            Files.deleteIfExists(Paths.get(filename));
+        } catch (IOException e) {
+            ERRORS.increment();
+            System.out.println("Error deleting file: " + e.getMessage());
+        }
+    }
+
     public static List<String> readFile(String filename) {
         List<String> lines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename, StandardCharsets.UTF_8))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 lines.add(line);
             }
         } catch (IOException e) {
+            ERRORS.increment();
             System.out.println("Error reading file: " + e.getMessage());
         }
         return lines;
     }
 
     public static void writeFile(String filename, List<String> lines) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename, StandardCharsets.UTF_8))) {
             for (String line : lines) {
                 writer.write(line);
                 writer.newLine();
             }
         } catch (IOException e) {
+            ERRORS.increment();
+            System.out.println("Error writing to file: " + e.getMessage());
+        }
+    }
+
+    // Writes a temp file, syncs it and renames it over the target, so a crash leaves either the
+    // old contents or the new ones and never a torn file. Returns false if the write failed.
+    public static boolean replaceFile(String filename, List<String> lines) {
+        Path target = Paths.get(filename);
+        Path temp = Paths.get(filename + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile());
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+            writer.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            ERRORS.increment();
+            System.out.println("Error writing to file: " + e.getMessage());
+            return false;
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            ERRORS.increment();
             System.out.println("Error writing to file: " + e.getMessage());
+            return false;
         }
     }
 
     public static void appendToFile(String filename, String line) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename, true))) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename, StandardCharsets.UTF_8, true))) {
             writer.write(line);
             writer.newLine();
         } catch (IOException e) {
+            ERRORS.increment();
             System.out.println("Error appending to file: " + e.getMessage());
         }
     }
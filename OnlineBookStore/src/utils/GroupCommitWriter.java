@@ -0,0 +1,196 @@
+// GroupCommitWriter.java
+package utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Appends lines to a file from a single background thread. Lines queued while a batch is being
+// written are collected into the next batch, so many callers share one append + fsync.
+public class GroupCommitWriter {
+    private final String filename;
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final BlockingQueue<PendingLine> queue = new LinkedBlockingQueue<>();
+    private final LatencyStats flushLatency;
+    private final Counter committedLines;
+    private final Counter errors = Metrics.counter("file.errors");
+    private final Thread flusher;
+    private volatile boolean stopped;
+    // Hand-edited files may lack a final newline; the first line appended must not join the last row
+    private boolean needsSeparator;
+
+    public GroupCommitWriter(String filename, int maxBatchSize, long maxDelayMillis) {
+        this.filename = filename;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMillis = maxDelayMillis;
+        String name = new File(filename).getName();
+        this.flushLatency = Metrics.timer("commit." + name);
+        // Lines per fsync is this over the flush timer's count
+        this.committedLines = Metrics.counter("commit." + name + ".lines");
+
+        this.needsSeparator = endsWithoutNewline(filename);
+
+        flusher = new Thread(this::run, "group-commit-" + filename);
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private static boolean endsWithoutNewline(String filename) {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+            if (file.length() == 0) {
+                return false;
+            }
+            file.seek(file.length() - 1);
+            return file.read() != '\n';
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public CompletableFuture<Void> append(String line) {
+        return enqueue(new PendingLine(line, null));
+    }
+
+    // The lines are queued as one entry, so they always go out in the same write and fsync
+    public CompletableFuture<Void> appendAll(List<String> lines) {
+        return append(String.join(System.lineSeparator(), lines));
+    }
+
+    // Completes once every line queued before it is written and the file has been moved to target;
+    // lines queued after it start a new file under the original name
+    public CompletableFuture<Void> rotate(String target) {
+        return enqueue(new PendingLine(null, target));
+    }
+
+    private CompletableFuture<Void> enqueue(PendingLine pending) {
+        queue.add(pending);
+        // Re-checked after queuing: a line that raced with stop() is either flushed or failed, never stranded
+        if (stopped && queue.remove(pending)) {
+            pending.done.completeExceptionally(new IllegalStateException("Writer for " + filename + " is stopped"));
+        }
+        return pending.done;
+    }
+
+    // Writes out every line queued so far, then ends the background thread
+    public void stop() {
+        stopped = true;
+        flusher.interrupt();
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<PendingLine> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+                // A rotation ends the batch, so nothing queued after it is held back waiting for more lines
+                while (batch.size() < maxBatchSize && batch.get(batch.size() - 1).rotateTo == null) {
+                    PendingLine next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                queue.drainTo(batch);
+                write(batch);
+                return;
+            }
+        }
+    }
+
+    // Lines before a rotation go to the file being rotated out, lines after it to the new one
+    private void write(List<PendingLine> batch) {
+        int from = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i).rotateTo != null) {
+                flush(batch.subList(from, i));
+                rotate(batch.get(i));
+                from = i + 1;
+            }
+        }
+        flush(batch.subList(from, batch.size()));
+    }
+
+    private void rotate(PendingLine rotation) {
+        try {
+            if (new File(filename).exists()) {
+                Files.move(Paths.get(filename), Paths.get(rotation.rotateTo),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            errors.increment();
+            System.out.println("Error rotating file: " + e.getMessage());
+            rotation.done.completeExceptionally(e);
+            return;
+        }
+        needsSeparator = false;
+        rotation.done.complete(null);
+    }
+
+    private void flush(List<PendingLine> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = Metrics.start();
+        try (FileOutputStream out = new FileOutputStream(filename, true);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            if (needsSeparator) {
+                writer.newLine();
+            }
+            for (PendingLine pending : batch) {
+                writer.write(pending.line);
+                writer.newLine();
+            }
+            writer.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            errors.increment();
+            System.out.println("Error appending to file: " + e.getMessage());
+            for (PendingLine pending : batch) {
+                pending.done.completeExceptionally(e);
+            }
+            return;
+        }
+        needsSeparator = false;
+        flushLatency.stop(start);
+        committedLines.add(batch.size());
+
+        for (PendingLine pending : batch) {
+            pending.done.complete(null);
+        }
+    }
+
+    // Either a line to append or, with rotateTo set, a rotation of the file
+    private static class PendingLine {
+        private final String line;
+        private final String rotateTo;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private PendingLine(String line, String rotateTo) {
+            this.line = line;
+            this.rotateTo = rotateTo;
+        }
+    }
+}
\ No newline at end of file
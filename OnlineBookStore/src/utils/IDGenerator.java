@@ -1,11 +1,26 @@
 // IDGenerator.java
 package utils;
 
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Time-ordered 64-bit ids: 41 bits of milliseconds since 2024-01-01 UTC, a 10-bit node id
+// (-Dbookstore.node.id, 0-1023) and a 12-bit sequence within the millisecond. Ids from one node
+// strictly increase, so they never collide and sort in creation order; distinct node ids keep
+// several processes apart. They are rendered as 13 Crockford base-32 characters, which compare
+// as strings in the same order as the numbers.
 public class IDGenerator {
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long NODE_ID = nodeId();
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    // Last issued (timestamp << SEQUENCE_BITS | sequence); the node id is added when an id is built
+    private static final AtomicLong last = new AtomicLong();
+
     public static String generateID() {
-        return UUID.randomUUID().toString().substring(0, 8);
+        return encode(nextId());
     }
 
     public static String generateOrderID() {
@@ -15,4 +30,36 @@ public class IDGenerator {
     public static String generatePaymentID() {
         return "PAY-" + generateID();
     }
+
+    // One CAS per id and no clock waits: once a millisecond's 4096 sequence numbers are used up the
+    // counter simply runs into the next millisecond, and a clock that steps backwards is ignored
+    public static long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        while (true) {
+            long previous = last.get();
+            long next = Math.max(previous + 1, now);
+            if (last.compareAndSet(previous, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (NODE_ID << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    public static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static long nodeId() {
+        int node = Integer.getInteger("bookstore.node.id", 0);
+        if (node < 0 || node >= (1 << NODE_BITS)) {
+            throw new IllegalArgumentException("bookstore.node.id must be between 0 and " + ((1 << NODE_BITS) - 1));
+        }
+        return node;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+// LatencyStatsMXBean.java
+package utils;
+
+public interface LatencyStatsMXBean {
+    long getCount();
+
+    double getAverageMillis();
+
+    double getMaxMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+// Metrics.java
+package utils;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Process-wide registry of named timers and counters. Each one is registered as an MXBean under
+// "bookstore:type=Timer|Counter,name=<name>" so jconsole or any JMX client can read it live, and
+// dump() renders the lot as text. Timing is on by default; with -Dbookstore.metrics=false,
+// start() returns 0 without reading the clock and LatencyStats.stop() ignores it.
+public class Metrics {
+    public static final boolean ENABLED = !"false".equals(System.getProperty("bookstore.metrics"));
+
+    private static final Map<String, LatencyStats> timers = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    // Look these up once into a static field; the lookup itself is not meant for the hot path
+    public static LatencyStats timer(String name) {
+        return timers.computeIfAbsent(name, key -> register("Timer", key, new LatencyStats()));
+    }
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> register("Counter", key, new Counter()));
+    }
+
+    private static <T> T register(String type, String name, T metric) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(metric, new ObjectName("bookstore:type=" + type + ",name=" + ObjectName.quote(name)));
+        } catch (JMException e) {
+            System.out.println("Error registering metric " + name + ": " + e.getMessage());
+        }
+        return metric;
+    }
+
+    public static String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Timers").append(ENABLED ? "" : " (disabled)").append(":\n");
+        new TreeMap<>(timers).forEach((name, stats) ->
+                sb.append(String.format("  %-28s %s%n", name, stats)));
+        sb.append("Counters:\n");
+        new TreeMap<>(counters).forEach((name, counter) ->
+                sb.append(String.format("  %-28s %d%n", name, counter.getCount())));
+        return sb.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+// Money.java
+package utils;
+
+// Amounts are plain longs counting cents, so sums and products are exact and allocation-free.
+// These helpers only convert at the edges: parsing file and user input, and formatting for output.
+public class Money {
+    public static long parse(String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return parse(value, start, end);
+    }
+
+    // Parses text[start, end) without copying it, so CsvReader can parse straight from its buffer
+    public static long parse(CharSequence text, int start, int end) {
+        int i = start;
+        boolean negative = i < end && text.charAt(i) == '-';
+        if (negative || (i < end && text.charAt(i) == '+')) {
+            i++;
+        }
+
+        long cents = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        boolean roundUp = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+                if (fractionDigits < 2) {
+                    cents = cents * 10 + (c - '0');
+                    if (fractionDigits >= 0) {
+                        fractionDigits++;
+                    }
+                } else if (fractionDigits == 2) {
+                    // Round half up on the first dropped digit, e.g. 209.29999999999998 -> 209.30
+                    roundUp = c >= '5';
+                    fractionDigits++;
+                }
+            } else {
+                return fromDouble(Double.parseDouble(text.subSequence(start, end).toString()));
+            }
+        }
+        if (digits == 0 || digits > 17) {
+            return fromDouble(Double.parseDouble(text.subSequence(start, end).toString()));
+        }
+
+        for (int scale = Math.max(fractionDigits, 0); scale < 2; scale++) {
+            cents *= 10;
+        }
+        if (roundUp) {
+            cents++;
+        }
+        return negative ? -cents : cents;
+    }
+
+    public static long fromDouble(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static long times(long cents, int quantity) {
+        return Math.multiplyExact(cents, quantity);
+    }
+
+    public static String format(long cents) {
+        return append(new StringBuilder(12), cents).toString();
+    }
+
+    // Always two decimals, no grouping: the form CSV files and the parser above expect
+    public static StringBuilder append(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        sb.append(cents / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+}
\ No newline at end of file
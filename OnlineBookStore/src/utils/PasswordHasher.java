@@ -0,0 +1,102 @@
+// PasswordHasher.java
+package utils;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Salted PBKDF2 hashes stored as pbkdf2$<iterations>$<salt>$<hash>. The work factor defaults to
+// -Dbookstore.pbkdf2.iterations (210,000 when unset); hashes made with fewer iterations, and legacy
+// plaintext passwords, report needsUpgrade so they can be re-hashed on the next successful login.
+public class PasswordHasher {
+    public static final int DEFAULT_ITERATIONS = Integer.getInteger("bookstore.pbkdf2.iterations", 210_000);
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA512";
+    private static final String PREFIX = "pbkdf2$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 512;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public PasswordHasher() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    public PasswordHasher(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(derive(password, salt, iterations));
+    }
+
+    public boolean verify(String password, String stored) {
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // A malformed row in users.csv is a failed login, not an error
+        String[] parts = stored.split("\\$");
+        int storedIterations = parts.length == 4 ? parseIterations(parts[1]) : -1;
+        if (storedIterations <= 0) {
+            return false;
+        }
+        byte[] expected;
+        byte[] salt;
+        try {
+            Base64.Decoder decoder = Base64.getDecoder();
+            expected = decoder.decode(parts[3]);
+            salt = decoder.decode(parts[2]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (expected.length == 0 || salt.length == 0) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected, derive(password, salt, storedIterations));
+    }
+
+    // -1 unless the field is a plain positive int
+    private static int parseIterations(String field) {
+        if (field.isEmpty() || field.length() > 9) {
+            return -1;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            if (field.charAt(i) < '0' || field.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        return Integer.parseInt(field);
+    }
+
+    public boolean isHashed(String stored) {
+        return stored.startsWith(PREFIX);
+    }
+
+    public boolean needsUpgrade(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        int end = stored.indexOf('$', PREFIX.length());
+        return end < 0 || parseIterations(stored.substring(PREFIX.length(), end)) < iterations;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
\ No newline at end of file
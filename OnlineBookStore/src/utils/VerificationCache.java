@@ -0,0 +1,77 @@
+// VerificationCache.java
+package utils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Remembers recent successful password checks so repeat logins skip the slow KDF. Entries hold an
+// HMAC of the password under a key that lives only in this process, never the password itself, and
+// are tied to the stored hash they were checked against, so a password change invalidates them.
+public class VerificationCache {
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final SecretKeySpec key;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    public VerificationCache(long ttlMillis, int maxEntries) {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.maxEntries = maxEntries;
+    }
+
+    public boolean matches(String userId, String stored, String password) {
+        Entry entry = entries.get(userId);
+        if (entry == null) {
+            return false;
+        }
+        if (System.nanoTime() - entry.createdAt > ttlNanos || !entry.stored.equals(stored)) {
+            entries.remove(userId, entry);
+            return false;
+        }
+        return MessageDigest.isEqual(entry.mac, mac(password));
+    }
+
+    public void put(String userId, String stored, String password) {
+        // Crude bound: a full cache starts over rather than tracking recency on every hit
+        if (entries.size() >= maxEntries) {
+            entries.clear();
+        }
+        entries.put(userId, new Entry(stored, mac(password), System.nanoTime()));
+    }
+
+    public void invalidate(String userId) {
+        entries.remove(userId);
+    }
+
+    private byte[] mac(String password) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC is not available", e);
+        }
+    }
+
+    private static final class Entry {
+        final String stored;
+        final byte[] mac;
+        final long createdAt;
+
+        Entry(String stored, byte[] mac, long createdAt) {
+            this.stored = stored;
+            this.mac = mac;
+            this.createdAt = createdAt;
+        }
+    }
+}
\ No newline at end of file